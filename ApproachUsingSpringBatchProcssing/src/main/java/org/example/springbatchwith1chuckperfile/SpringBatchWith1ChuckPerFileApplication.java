@@ -1,9 +1,12 @@
 package org.example.springbatchwith1chuckperfile;
 
+import org.example.wordcountingcore.pipeline.WordCountPipeline;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.Import;
 
 @SpringBootApplication
+@Import(WordCountPipeline.class)
 public class SpringBatchWith1ChuckPerFileApplication {
 
     public static void main(String[] args) {
@@ -1,9 +1,17 @@
 
 package org.example.springbatchwith1chuckperfile.config;
 
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.example.springbatchwith1chuckperfile.dto.FinalResult;
-import org.example.springbatchwith1chuckperfile.dto.SimilarityResult;
+import org.example.wordcountingcore.dto.ApproximateSimilarityResult;
+import org.example.wordcountingcore.dto.SimilarityResult;
+import org.example.wordcountingcore.ngram.ShingleCounter;
+import org.example.wordcountingcore.pipeline.HashMapWordCounter;
+import org.example.wordcountingcore.pipeline.Utf8Tokenizer;
+import org.example.wordcountingcore.pipeline.WordCountPipeline;
+import org.example.wordcountingcore.sketch.BoundedWordCounter;
+import org.example.wordcountingcore.spill.SpillingWordCounter;
 import org.springframework.batch.core.*;
 import org.springframework.batch.core.configuration.annotation.StepScope;
 import org.springframework.batch.core.job.builder.JobBuilder;
@@ -29,13 +37,16 @@ import org.springframework.transaction.PlatformTransactionManager;
 
 import java.io.IOException;
 import java.net.MalformedURLException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 
-import static org.example.springbatchwith1chuckperfile.dto.SimilarityResult.performComparison;
+import static org.example.wordcountingcore.dto.SimilarityResult.performComparison;
 
 @Configuration
 @Slf4j
+@RequiredArgsConstructor
 public class Config {
 
     /**
@@ -62,6 +73,44 @@ public class Config {
      * */
     private final Map<String, Integer> fileAFrequency = new ConcurrentHashMap<>();
 
+    /**
+     * Counting mode of pool files
+     * exact : HashMap of all words, memory grows with the vocabulary of the file
+     * bounded : top-N words tracked exactly + Count-Min sketch for the rest, fixed memory per file
+     * spill : HashMap up to spill-entries words, then sorted runs on disk merged at the end, exact with fixed memory
+     * ngram : shingles of ngram-size consecutive words instead of single words, so word order counts
+     * */
+    @Value("${counting.mode}")
+    private String countingMode;
+
+    @Value("${counting.heavy-hitters}")
+    private int heavyHitters;
+
+    @Value("${counting.sketch-width}")
+    private int sketchWidth;
+
+    @Value("${counting.sketch-depth}")
+    private int sketchDepth;
+
+    @Value("${counting.spill-entries}")
+    private int spillEntries;
+
+    @Value("${counting.spill-directory}")
+    private String spillDirectory;
+
+    @Value("${counting.ngram-size}")
+    private int ngramSize;
+
+    /**
+     * Shingles of File A, only counted in ngram mode (see fileAShingles)
+     * */
+    private ShingleCounter fileAShingles;
+
+    /**
+     * Reads each pool file in a separate stage from counting, see WordCountPipeline
+     * */
+    private final WordCountPipeline wordCountPipeline;
+
     /**
      * Main Job Definition
      * 1. Step to process File A and populate word frequency map
@@ -106,19 +155,16 @@ public class Config {
     }
     /**
      * Logic of processing each line to compute word frequency
+     * Same tokens as the pool files (see Utf8Tokenizer), so words of every script are compared, lower cased
      * @return ItemProcessor that converts each line into a Map of word frequencies
      * */
     @Bean
     public ItemProcessor<String, Map<String, Integer>> wordFrequencyProcessor() {
         return line -> {
-            Map<String, Integer> map = new HashMap<>();
-            String[] words = line.toLowerCase().split("\\W+");
-            for (String word : words) {
-                if (word.matches("[a-zA-Z]+")) {
-                    map.put(word, map.getOrDefault(word, 0) + 1);
-                }
-            }
-            return map;
+            HashMapWordCounter counter = new HashMapWordCounter();
+            byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+            new Utf8Tokenizer().tokenize(bytes, bytes.length, counter);
+            return counter.getFrequency();
         };
     }
     /**
@@ -211,9 +257,12 @@ public class Config {
     }
 
     /**
-     * For Each File in the Pool, Read it using a FlatFileItemReader
-     * Process each line to compute word frequency using the same processor as File A
+     * For Each File in the Pool, Read it using the WordCountPipeline
+     * Reading and counting words run in separate stages, with the same tokens as wordFrequencyProcessor
      * Then Compare the computed word frequency with the pre-computed word frequency of File A
+     * In bounded counting mode, the file is counted with fixed memory (see BoundedWordCounter), and the result has error bounds
+     * In spill counting mode, words over the budget are spilled to sorted runs on disk (see SpillingWordCounter)
+     * In ngram counting mode, shingles of consecutive words are compared instead of words (see ShingleCounter)
      * Return a ComparisonResult object containing the filename, total word count and intersection count
      * */
     @Bean
@@ -222,29 +271,36 @@ public class Config {
         return resource -> {
             log.info("Processing file: {} on thread: {} ", resource.getFilename(), Thread.currentThread().getName());
 
-            FlatFileItemReader<String> reader = new FlatFileItemReaderBuilder<String>()
-                    .name("temp-reader-" + resource.getFilename())
-                    .resource(resource)
-                    .lineMapper(new PassThroughLineMapper())
-                    .build();
-
-            // Initialize the reader
-            reader.afterPropertiesSet();
-
-            ItemProcessor<String, Map<String, Integer>> lineProcessor = wordFrequencyProcessor();
-            Map<String, Integer> currentFileFrequency = new HashMap<>();
-
-            reader.open(new ExecutionContext());
-            String line;
-            while ((line = reader.read()) != null) {
-                Map<String, Integer> lineMap = lineProcessor.process(line);
-                lineMap.forEach((key, value) -> currentFileFrequency.merge(key, value, Integer::sum));
+            if ("bounded".equals(countingMode)) {
+                BoundedWordCounter counter = wordCountPipeline.count(resource,
+                        () -> new BoundedWordCounter(heavyHitters, sketchWidth, sketchDepth));
+                return counter.compareWith(resource.getFilename(), fileAFrequency);
+            }
+            if ("spill".equals(countingMode)) {
+                SpillingWordCounter counter = wordCountPipeline.count(resource,
+                        () -> new SpillingWordCounter(spillEntries, Path.of(spillDirectory)));
+                return counter.compareWith(resource.getFilename(), fileAFrequency);
             }
-            reader.close();
+            if ("ngram".equals(countingMode)) {
+                ShingleCounter counter = wordCountPipeline.count(resource, () -> new ShingleCounter(ngramSize));
+                return counter.compareWith(resource.getFilename(), fileAShingles());
+            }
+
+            Map<String, Integer> currentFileFrequency = wordCountPipeline.count(resource);
 
             return performComparison(resource.getFilename(), fileAFrequency, currentFileFrequency);
         };
     }
+    /**
+     * Shingles of File A, counted once by the first partition that needs them
+     * fileAStep counts words line by line, which loses the shingles spanning two lines, so File A is read again here
+     * */
+    private synchronized ShingleCounter fileAShingles() throws IOException {
+        if (fileAShingles == null) {
+            fileAShingles = wordCountPipeline.count(new ClassPathResource(inputFileA), () -> new ShingleCounter(ngramSize));
+        }
+        return fileAShingles;
+    }
     /**
      * For Now Writer Only Logs the Comparison Result
      * We can extend it to write to a DB or a file as needed
@@ -271,6 +327,13 @@ public class Config {
                 for (SimilarityResult result : finalResult.getSimilarities()) {
                     log.info("File: {}, Total Words: {}, Intersection: {}, Similarity Score: {}%",
                             result.getFilename(), result.getTotalCount(), result.getIntersectionCount(), String.format("%.2f", result.getSimilarityScore()));
+                    if (result instanceof ApproximateSimilarityResult approximate) {
+                        log.info("File: {}, Intersection: [{}, {}], Union: [{}, {}], Similarity Score: [{}%, {}%]",
+                                approximate.getFilename(),
+                                approximate.getIntersectionLowerBound(), approximate.getIntersectionUpperBound(),
+                                approximate.getUnionLowerBound(), approximate.getUnionUpperBound(),
+                                String.format("%.2f", approximate.getScoreLowerBound()), String.format("%.2f", approximate.getScoreUpperBound()));
+                    }
                 }
             }
         };
@@ -1,6 +1,7 @@
 package org.example.springbatchwith1chuckperfile.dto;
 
 import lombok.Getter;
+import org.example.wordcountingcore.dto.SimilarityResult;
 
 import java.util.*;
 
@@ -3,14 +3,17 @@ package org.example.hashmapapproach;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.example.hashmapapproach.service.SimilarityService;
+import org.example.wordcountingcore.pipeline.WordCountPipeline;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.Import;
 
 import java.io.IOException;
 
 @Slf4j
 @SpringBootApplication
+@Import(WordCountPipeline.class)
 @RequiredArgsConstructor
 public class HashMapApproachApplication implements CommandLineRunner {
 
@@ -1,6 +1,7 @@
 package org.example.hashmapapproach.dto;
 
 import lombok.Getter;
+import org.example.wordcountingcore.dto.SimilarityResult;
 
 import java.util.ArrayList;
 import java.util.Collections;
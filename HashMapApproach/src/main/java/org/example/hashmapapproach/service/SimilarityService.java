@@ -1,23 +1,34 @@
 package org.example.hashmapapproach.service;
 
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.example.hashmapapproach.dto.FinalResult;
-import org.example.hashmapapproach.dto.SimilarityResult;
+import org.example.wordcountingcore.dto.ApproximateSimilarityResult;
+import org.example.wordcountingcore.dto.SimilarityResult;
+import org.example.wordcountingcore.ngram.ShingleCounter;
+import org.example.wordcountingcore.pipeline.WordCountPipeline;
+import org.example.wordcountingcore.sketch.BoundedWordCounter;
+import org.example.wordcountingcore.spill.SpillingWordCounter;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Service;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.Map;
 
+import static org.example.wordcountingcore.dto.SimilarityResult.performComparison;
+
 @Service
 @Slf4j
+@RequiredArgsConstructor
 public class SimilarityService {
 
+    private static final String BOUNDED_MODE = "bounded";
+    private static final String SPILL_MODE = "spill";
+    private static final String NGRAM_MODE = "ngram";
+
     /**
      * File A
      * */
@@ -30,9 +41,47 @@ public class SimilarityService {
     @Value("${input.pool}")
     private Resource[] poolDir;
 
+    /**
+     * Counting mode of pool files
+     * exact : HashMap of all words, memory grows with the vocabulary of the file
+     * bounded : top-N words tracked exactly + Count-Min sketch for the rest, fixed memory per file
+     * spill : HashMap up to spill-entries words, then sorted runs on disk merged at the end, exact with fixed memory
+     * ngram : shingles of ngram-size consecutive words instead of single words, so word order counts
+     * */
+    @Value("${counting.mode}")
+    private String countingMode;
+
+    @Value("${counting.heavy-hitters}")
+    private int heavyHitters;
+
+    @Value("${counting.sketch-width}")
+    private int sketchWidth;
+
+    @Value("${counting.sketch-depth}")
+    private int sketchDepth;
+
+    @Value("${counting.spill-entries}")
+    private int spillEntries;
+
+    @Value("${counting.spill-directory}")
+    private String spillDirectory;
+
+    @Value("${counting.ngram-size}")
+    private int ngramSize;
+
+    /**
+     * Reads each file in a separate stage from counting, see WordCountPipeline
+     * */
+    private final WordCountPipeline wordCountPipeline;
+
     private final Map<String, Integer> fileAFreq = new HashMap<>();
     private final FinalResult finalResult = new FinalResult();
 
+    /**
+     * Shingles of File A, only loaded in ngram mode
+     * */
+    private ShingleCounter fileAShingles;
+
 
     /**
      * Main Service to compare File A with all files in Pool Directory
@@ -43,7 +92,12 @@ public class SimilarityService {
 
         loadFileAFreq();
         for(Resource r : poolDir){
-            calculateSimilarity(r);
+            switch (countingMode) {
+                case BOUNDED_MODE -> calculateBoundedSimilarity(r);
+                case SPILL_MODE -> calculateSpillSimilarity(r);
+                case NGRAM_MODE -> calculateNgramSimilarity(r);
+                default -> calculateSimilarity(r);
+            }
         }
         finalResult.sortByScoreDescending();
 
@@ -65,18 +119,11 @@ public class SimilarityService {
     public void loadFileAFreq() throws IOException {
         log.info("Start to compare files similarity service");
         long startTime = System.nanoTime();
-        InputStream inputStream = fileAPath.getInputStream();
-        BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream));
-        String line;
-        while((line = reader.readLine()) != null) {
-            String[] words = line.split("\\W+");
-            for(String word : words){
-                if(word.matches("[a-zA-Z]+")){
-                    fileAFreq.put(word, fileAFreq.getOrDefault(word, 0) + 1);
-                }
-            }
+        if (NGRAM_MODE.equals(countingMode)) {
+            fileAShingles = wordCountPipeline.count(fileAPath, () -> new ShingleCounter(ngramSize));
+        } else {
+            fileAFreq.putAll(wordCountPipeline.count(fileAPath));
         }
-        reader.close();
         long endTime = System.nanoTime();
         long elapsedTime = (endTime - startTime) / 1_000_000;
         log.info("File A loaded in {} ms", elapsedTime);
@@ -89,34 +136,89 @@ public class SimilarityService {
     public void calculateSimilarity(Resource file){
         log.info("Start to calculate similarity of file: {}", file.getFilename());
         long startTime = System.nanoTime();
-        Map<String, Integer> fileFreq = new HashMap<>();
-        try (BufferedReader  reader = new BufferedReader(new InputStreamReader(file.getInputStream()))){
-            String line;
-            while((line = reader.readLine()) != null) {
-                String[] words = line.split("\\W+");
-                for(String word : words){
-                    if(word.matches("[a-zA-Z]+")){
-                        fileFreq.put(word, fileFreq.getOrDefault(word, 0) + 1);
-                    }
-                }
-            }
+        Map<String, Integer> fileFreq;
+        try {
+            fileFreq = wordCountPipeline.count(file);
         } catch (IOException e) {
             throw new RuntimeException(e);
 
         }
-        long intersectionCount = 0;
-        long unionCount = 0;
-        for(String word : fileFreq.keySet()){
-            intersectionCount += Math.min(fileFreq.getOrDefault(word, 0), fileAFreq.getOrDefault(word,0));
-            unionCount += Math.max(fileFreq.getOrDefault(word, 0), fileAFreq.getOrDefault(word,0));
-        }
-        double score = unionCount == 0 ? 0.0 : ((double) intersectionCount / unionCount) * 100.0;
+        SimilarityResult result = performComparison(file.getFilename(), fileAFreq, fileFreq);
 
         long endTime = System.nanoTime();
         long elapsedTime = (endTime - startTime) / 1_000_000;
         log.info("File: {} processed in {} ms", file.getFilename(), elapsedTime);
 
-        SimilarityResult result = new SimilarityResult(file.getFilename(), unionCount, intersectionCount, score);
+        finalResult.addSimilarityResult(result);
+    }
+    /**
+     * Same as calculateSimilarity, but with fixed memory per file (see BoundedWordCounter)
+     * Intersection and Union are computed over words of File A, with their error bounds
+     * */
+    public void calculateBoundedSimilarity(Resource file){
+        log.info("Start to calculate bounded similarity of file: {}", file.getFilename());
+        long startTime = System.nanoTime();
+        BoundedWordCounter counter;
+        try {
+            counter = wordCountPipeline.count(file, () -> new BoundedWordCounter(heavyHitters, sketchWidth, sketchDepth));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        ApproximateSimilarityResult result = counter.compareWith(file.getFilename(), fileAFreq);
+
+        long endTime = System.nanoTime();
+        long elapsedTime = (endTime - startTime) / 1_000_000;
+        log.info("File: {} processed in {} ms, Intersection: [{}, {}], Union: [{}, {}], Similarity Score: [{}, {}]",
+                file.getFilename(), elapsedTime,
+                result.getIntersectionLowerBound(), result.getIntersectionUpperBound(),
+                result.getUnionLowerBound(), result.getUnionUpperBound(),
+                result.getScoreLowerBound(), result.getScoreUpperBound());
+
+        finalResult.addSimilarityResult(result);
+    }
+
+    /**
+     * Same as calculateSimilarity, but words are spilled to sorted runs on disk once the budget is reached
+     * (see SpillingWordCounter), so huge vocabularies get an exact score with fixed memory
+     * */
+    public void calculateSpillSimilarity(Resource file){
+        log.info("Start to calculate spill similarity of file: {}", file.getFilename());
+        long startTime = System.nanoTime();
+        SpillingWordCounter counter;
+        try {
+            counter = wordCountPipeline.count(file, () -> new SpillingWordCounter(spillEntries, Path.of(spillDirectory)));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        int runCount = counter.getRunCount();
+        SimilarityResult result = counter.compareWith(file.getFilename(), fileAFreq);
+
+        long endTime = System.nanoTime();
+        long elapsedTime = (endTime - startTime) / 1_000_000;
+        log.info("File: {} processed in {} ms, Spilled Runs: {}", file.getFilename(), elapsedTime, runCount);
+
+        finalResult.addSimilarityResult(result);
+    }
+
+    /**
+     * Same as calculateSimilarity, but over shingles of ngram-size consecutive words (see ShingleCounter)
+     * Shingles crossing chunks counted by different workers are stitched back in file order by ShingleCounter
+     * */
+    public void calculateNgramSimilarity(Resource file){
+        log.info("Start to calculate n-gram similarity of file: {}", file.getFilename());
+        long startTime = System.nanoTime();
+        ShingleCounter counter;
+        try {
+            counter = wordCountPipeline.count(file, () -> new ShingleCounter(ngramSize));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        SimilarityResult result = counter.compareWith(file.getFilename(), fileAShingles);
+
+        long endTime = System.nanoTime();
+        long elapsedTime = (endTime - startTime) / 1_000_000;
+        log.info("File: {} processed in {} ms, Unique Shingles: {}", file.getFilename(), elapsedTime, counter.getUniqueShingles());
+
         finalResult.addSimilarityResult(result);
     }
 }
@@ -2,25 +2,43 @@ package org.example.hashmapwithparallelprocessingapproach;
 
 import lombok.RequiredArgsConstructor;
 import org.example.hashmapwithparallelprocessingapproach.service.SimilarityService;
+import org.example.wordcountingcore.pipeline.WordCountPipeline;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.Import;
 
 import java.io.IOException;
 
 @SpringBootApplication
+@Import(WordCountPipeline.class)
 @RequiredArgsConstructor
 public class HashMapWithParallelProcessingApproachApplication implements CommandLineRunner {
 
 
     private final SimilarityService similarityService;
 
+    /**
+     * fixed : every file on its own virtual thread, with the configured counting mode
+     * planned : the ExecutionPlanner picks the strategy of each file
+     * deadline : like fixed, but bound by run and file deadlines, returns partial results when time runs out
+     * sampled : rough ranking within a time budget, estimated from random blocks of each file
+     * */
+    @Value("${execution.mode}")
+    private String executionMode;
+
     public static void main(String[] args) {
         SpringApplication.run(HashMapWithParallelProcessingApproachApplication.class, args);
     }
 
     @Override
     public void run(String... args) throws IOException {
-        similarityService.compareFilesSimilarityService();
+        switch (executionMode) {
+            case "planned" -> similarityService.compareFilesWithPlannerService();
+            case "deadline" -> similarityService.compareFilesWithDeadlineService();
+            case "sampled" -> similarityService.compareFilesWithSamplingService();
+            default -> similarityService.compareFilesSimilarityService();
+        }
     }
 }
@@ -0,0 +1,188 @@
+package org.example.hashmapwithparallelprocessingapproach.deadline;
+
+import org.example.hashmapwithparallelprocessingapproach.dto.FileStatus;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Structured concurrency with deadlines, each task on its own Virtual Thread
+ * Tasks are forked inside the scope, and the scope is joined before leaving it (try-with-resources):
+ * - A task that runs longer than the task timeout is cancelled (TIMED_OUT)
+ * - When the run deadline passes, every unfinished task is cancelled (CANCELLED)
+ * - When a task fails, every other task is cancelled and its exception is thrown by join
+ * The run deadline starts when the scope is opened, and join can be called once per step of the run
+ * (like loading File A, then comparing the pool), so every step is bound by the same deadline
+ * Cancelling interrupts the task, a task stuck in non-interruptible I/O finishes in the background and its result is dropped
+ * */
+public class DeadlineScope<T> implements AutoCloseable {
+
+    /**
+     * Outcome of a task after join, result is null unless the task is COMPLETED
+     * */
+    public record Outcome<T>(String name, FileStatus status, T result) {
+    }
+
+    private final ExecutorService executorService = Executors.newVirtualThreadPerTaskExecutor();
+    private final BlockingQueue<Subtask> finished = new LinkedBlockingQueue<>();
+    private final List<Subtask> subtasks = new ArrayList<>();
+    private final long runDeadline;
+
+    /**
+     * Tasks forked before this index have been joined already
+     * */
+    private int joined;
+
+    public DeadlineScope(Duration runTimeout) {
+        this.runDeadline = System.nanoTime() + runTimeout.toNanos();
+    }
+
+    public void fork(String name, Callable<T> task) {
+        Subtask subtask = new Subtask(name, task);
+        subtasks.add(subtask);
+        subtask.future = executorService.submit(subtask);
+    }
+
+    /**
+     * Wait until every task forked since the last join is finished, or cancelled by its deadline
+     * @return outcomes of those tasks, in fork order
+     * @throws ExecutionException first task failure, other tasks are cancelled
+     * */
+    public List<Outcome<T>> join(Duration taskTimeout) throws ExecutionException, InterruptedException {
+        long taskTimeoutNanos = taskTimeout.toNanos();
+        List<Subtask> joining = new ArrayList<>(subtasks.subList(joined, subtasks.size()));
+        joined = subtasks.size();
+        int pending = joining.size();
+        while (pending > 0) {
+            long now = System.nanoTime();
+            long nextDeadline = runDeadline;
+            for (Subtask subtask : joining) {
+                // A task that hasn't started yet can't time out before a task timeout from now
+                long taskDeadline = (subtask.startNanos != 0 ? subtask.startNanos : now) + taskTimeoutNanos;
+                if (subtask.status == null && taskDeadline - nextDeadline < 0) {
+                    nextDeadline = taskDeadline;
+                }
+            }
+
+            // Once past a deadline, only collect tasks that already finished, before cancelling the others
+            Subtask done = finished.poll(Math.max(0, nextDeadline - now), TimeUnit.NANOSECONDS);
+            if (done != null) {
+                pending -= collect(done);
+                continue;
+            }
+
+            // A task that finished right at its deadline may not be in the queue yet, it is collected instead of cancelled
+            now = System.nanoTime();
+            if (now - runDeadline >= 0) {
+                for (Subtask subtask : joining) {
+                    if (subtask.completed) {
+                        pending -= collect(subtask);
+                    }
+                }
+                pending -= cancelUnfinished(FileStatus.CANCELLED);
+                break;
+            }
+            for (Subtask subtask : joining) {
+                if (subtask.status == null && subtask.startNanos != 0 && !subtask.completed
+                        && now - (subtask.startNanos + taskTimeoutNanos) >= 0) {
+                    subtask.cancel(FileStatus.TIMED_OUT);
+                    pending--;
+                }
+            }
+        }
+
+        List<Outcome<T>> outcomes = new ArrayList<>(joining.size());
+        for (Subtask subtask : joining) {
+            outcomes.add(new Outcome<>(subtask.name, subtask.status,
+                    subtask.status == FileStatus.COMPLETED ? subtask.result : null));
+        }
+        return outcomes;
+    }
+
+    /**
+     * Cancel every task still running, without waiting for stuck ones
+     * */
+    @Override
+    public void close() {
+        cancelUnfinished(FileStatus.CANCELLED);
+        executorService.shutdownNow();
+    }
+
+    /**
+     * Set the status of a finished task, once
+     * @return 1 if the task was not collected or cancelled before, 0 otherwise
+     * @throws ExecutionException if the task failed, other tasks are cancelled
+     * */
+    private int collect(Subtask done) throws ExecutionException {
+        if (done.status != null) {
+            return 0;
+        }
+        if (done.failure != null) {
+            cancelUnfinished(FileStatus.CANCELLED);
+            throw new ExecutionException("Task failed: " + done.name, done.failure);
+        }
+        done.status = FileStatus.COMPLETED;
+        return 1;
+    }
+
+    private int cancelUnfinished(FileStatus status) {
+        int cancelled = 0;
+        for (Subtask subtask : subtasks) {
+            if (subtask.status == null) {
+                subtask.cancel(status);
+                cancelled++;
+            }
+        }
+        return cancelled;
+    }
+
+    /**
+     * Task wrapper, records when it started and reports itself as finished
+     * completed is set once result or failure is recorded, before the Future is done, so join doesn't cancel it
+     * Status is only set by the joining thread
+     * */
+    private final class Subtask implements Callable<Void> {
+        private final String name;
+        private final Callable<T> task;
+        private volatile long startNanos;
+        private volatile T result;
+        private volatile Throwable failure;
+        private volatile boolean completed;
+        private volatile FileStatus status;
+        private Future<Void> future;
+
+        private Subtask(String name, Callable<T> task) {
+            this.name = name;
+            this.task = task;
+        }
+
+        @Override
+        public Void call() {
+            // 0 means not started, so avoid it as a start time
+            startNanos = System.nanoTime() | 1;
+            try {
+                result = task.call();
+            } catch (Throwable e) {
+                failure = e;
+            } finally {
+                completed = true;
+                finished.add(this);
+            }
+            return null;
+        }
+
+        private void cancel(FileStatus status) {
+            this.status = status;
+            future.cancel(true);
+        }
+    }
+}
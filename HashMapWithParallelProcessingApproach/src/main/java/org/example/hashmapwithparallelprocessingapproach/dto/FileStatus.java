@@ -0,0 +1,21 @@
+package org.example.hashmapwithparallelprocessingapproach.dto;
+
+/**
+ * Status of a pool file at the end of a deadline-bound run
+ * A failed file is not a status, its exception fails the whole run
+ * */
+public enum FileStatus {
+    /**
+     * Finished in time, its similarity result is available
+     * */
+    COMPLETED,
+    /**
+     * Exceeded its own file deadline, and was cancelled
+     * */
+    TIMED_OUT,
+    /**
+     * Still running (or not started) when the run deadline passed, and was cancelled
+     * Pool files are also CANCELLED without being started when File A doesn't load in time
+     * */
+    CANCELLED
+}
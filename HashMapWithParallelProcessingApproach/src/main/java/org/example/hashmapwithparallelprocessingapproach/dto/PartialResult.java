@@ -0,0 +1,41 @@
+package org.example.hashmapwithparallelprocessingapproach.dto;
+
+import org.example.wordcountingcore.dto.SimilarityResult;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Result of a deadline-bound run
+ * Similarities of the files that finished in time, and the status of File A and of every file of the pool
+ * Statuses are keyed by resource description (it holds the path), as files in different folders may share a name
+ * */
+public class PartialResult {
+    private final List<SimilarityResult> similarities;
+    private final Map<String, FileStatus> fileStatuses;
+
+    public PartialResult(List<SimilarityResult> similarities, Map<String, FileStatus> fileStatuses) {
+        this.similarities = similarities;
+        this.fileStatuses = Collections.unmodifiableMap(fileStatuses);
+        this.similarities.sort((a, b) -> Double.compare(b.getSimilarityScore(), a.getSimilarityScore()));
+    }
+
+    /**
+     * Similarities of completed files, sorted by score descending
+     * */
+    public List<SimilarityResult> getSimilarities() {
+        return similarities;
+    }
+
+    public Map<String, FileStatus> getFileStatuses() {
+        return fileStatuses;
+    }
+
+    /**
+     * True if File A and every file of the pool finished in time
+     * */
+    public boolean isComplete() {
+        return fileStatuses.values().stream().allMatch(status -> status == FileStatus.COMPLETED);
+    }
+}
@@ -0,0 +1,67 @@
+package org.example.hashmapwithparallelprocessingapproach.pipeline;
+
+import org.example.wordcountingcore.dto.SimilarityResult;
+import org.example.wordcountingcore.pipeline.WordCounter;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.example.wordcountingcore.dto.SimilarityResult.fromCounts;
+
+/**
+ * Exact counting against the frozen word index of File A
+ * Words that are not in File A are only added to the total, as they don't change the intersection
+ * So memory is bounded by the vocabulary of File A, whatever the vocabulary of the file is
+ * */
+public class FileAIndexWordCounter implements WordCounter<FileAIndexWordCounter> {
+
+    /**
+     * Read-only after File A is loaded, so it is shared by all workers without locking
+     * */
+    private final Map<String, Integer> fileAIndex;
+    private final Map<String, Integer> frequency = new HashMap<>();
+    private long totalCount;
+
+    public FileAIndexWordCounter(Map<String, Integer> fileAIndex) {
+        this.fileAIndex = fileAIndex;
+    }
+
+    @Override
+    public void add(String word) {
+        totalCount++;
+        if (fileAIndex.containsKey(word)) {
+            frequency.merge(word, 1, Integer::sum);
+        }
+    }
+
+    @Override
+    public FileAIndexWordCounter merge(FileAIndexWordCounter other) {
+        other.frequency.forEach((word, count) -> frequency.merge(word, count, Integer::sum));
+        totalCount += other.totalCount;
+        return this;
+    }
+
+    /**
+     * Same comparison as SimilarityResult.performComparison, the total of the file counts the skipped words too
+     * */
+    public SimilarityResult compareWith(String filename) {
+        long intersectionCount = 0;
+        long totalA = 0;
+        for (Map.Entry<String, Integer> entry : fileAIndex.entrySet()) {
+            totalA += entry.getValue();
+            intersectionCount += Math.min(entry.getValue(), frequency.getOrDefault(entry.getKey(), 0));
+        }
+        return fromCounts(filename, intersectionCount, totalA, totalCount);
+    }
+
+    /**
+     * Frequency of the words of File A found in the file
+     * */
+    public Map<String, Integer> getFrequency() {
+        return frequency;
+    }
+
+    public long getTotalCount() {
+        return totalCount;
+    }
+}
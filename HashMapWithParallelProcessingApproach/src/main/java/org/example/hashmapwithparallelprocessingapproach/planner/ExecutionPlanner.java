@@ -0,0 +1,157 @@
+package org.example.hashmapwithparallelprocessingapproach.planner;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Picks the execution strategy of each pool file before the run
+ * Inputs: number of files, size of each file, available cores, max heap, and File A (size, vocabulary, load time)
+ * 1. Cores are shared between files, a file is split between several workers only if it is big enough
+ * 2. Heap left after loading File A is shared between files
+ * 3. Each file takes the fastest strategy whose estimated memory fits its share of the heap:
+ *    HashMap of all words -> Words of File A only -> Spill to disk
+ * Time is estimated from the throughput of each strategy measured on File A (see StrategyThroughput)
+ * */
+@Component
+@Slf4j
+public class ExecutionPlanner {
+
+    /**
+     * Rough heap cost of one HashMap<String, Integer> entry (String, Node, Integer and table slot)
+     * */
+    private static final long ENTRY_BYTES = 100;
+
+    /**
+     * Average bytes of a word with its separator, used as the worst case vocabulary (every word unique)
+     * */
+    private static final long BYTES_PER_WORD = 6;
+
+    /**
+     * Fewest entries a spilling counter holds, below that it writes too many small runs
+     * */
+    private static final int MIN_SPILL_ENTRIES = 1024;
+
+    /**
+     * Fraction of the free heap the plan is allowed to use for counting
+     * */
+    private final double heapFraction;
+
+    /**
+     * Files smaller than this are counted by a single worker, as splitting doesn't pay off
+     * */
+    private final long splitThresholdBytes;
+
+    public ExecutionPlanner(@Value("${execution.heap-fraction}") double heapFraction,
+                            @Value("${execution.split-threshold-bytes}") long splitThresholdBytes) {
+        this.heapFraction = heapFraction;
+        this.splitThresholdBytes = splitThresholdBytes;
+    }
+
+    /**
+     * Plan all pool files, that will run at the same time
+     * @param fileASize bytes of File A
+     * @param fileAVocabulary number of unique words of File A
+     * @param throughput bytes per ms of one worker with each strategy, measured on a warm JVM
+     * @param maxSpillEntries most entries a spilling worker holds (counting.spill-entries), a smaller budget per file lowers it
+     * */
+    public List<FilePlan> plan(Resource[] pool, long fileASize, int fileAVocabulary, StrategyThroughput throughput, int maxSpillEntries) {
+        Runtime runtime = Runtime.getRuntime();
+        long freeHeap = runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory());
+        return plan(pool, fileASize, fileAVocabulary, throughput, maxSpillEntries, runtime.availableProcessors(), freeHeap);
+    }
+
+    /**
+     * Same as plan, with the cores and free heap given
+     * */
+    List<FilePlan> plan(Resource[] pool, long fileASize, int fileAVocabulary, StrategyThroughput throughput, int maxSpillEntries,
+                        int cores, long freeHeap) {
+        long fileBudget = (long) (freeHeap * heapFraction) / Math.max(1, pool.length);
+        int coresPerFile = Math.max(1, cores / Math.max(1, pool.length));
+
+        log.info("Planner inputs: {} files, {} cores, {} MB free heap, {} MB budget per file, File A: {} bytes, {} unique words",
+                pool.length, cores, freeHeap >> 20, fileBudget >> 20, fileASize, fileAVocabulary);
+
+        List<Draft> drafts = new ArrayList<>(pool.length);
+        int totalWorkers = 0;
+        for (Resource file : pool) {
+            long size = sizeOf(file);
+            // Unknown size (some URL resources), assume it looks like File A
+            long estimatedSize = size >= 0 ? size : fileASize;
+            int workers = estimatedSize >= splitThresholdBytes ? coresPerFile : 1;
+            long vocabulary = estimateVocabulary(estimatedSize, fileASize, fileAVocabulary);
+
+            ExecutionStrategy strategy;
+            long memory;
+            int fileSpillEntries = 0;
+            if (workers * vocabulary * ENTRY_BYTES <= fileBudget) {
+                strategy = workers > 1 ? ExecutionStrategy.PARALLEL_SPLIT : ExecutionStrategy.SEQUENTIAL;
+                memory = workers * vocabulary * ENTRY_BYTES;
+            } else {
+                long indexEntries = Math.min(vocabulary, fileAVocabulary);
+                if (workers * indexEntries * ENTRY_BYTES > fileBudget) {
+                    workers = 1;
+                }
+                if (workers * indexEntries * ENTRY_BYTES <= fileBudget) {
+                    strategy = ExecutionStrategy.STREAMING_A_INDEX;
+                    memory = workers * indexEntries * ENTRY_BYTES;
+                } else {
+                    // Entries of each worker are taken from the budget, so all workers together stay within it
+                    strategy = ExecutionStrategy.SPILL_TO_DISK;
+                    fileSpillEntries = (int) Math.max(MIN_SPILL_ENTRIES, Math.min(maxSpillEntries, fileBudget / ((long) workers * ENTRY_BYTES)));
+                    memory = workers * (long) fileSpillEntries * ENTRY_BYTES;
+                }
+            }
+            totalWorkers += workers;
+            drafts.add(new Draft(file, size, estimatedSize, strategy, workers, fileSpillEntries, memory));
+        }
+
+        // Files run at the same time, so when workers are more than cores they share them
+        double contention = Math.max(1.0, (double) totalWorkers / cores);
+        List<FilePlan> plans = new ArrayList<>(drafts.size());
+        for (Draft draft : drafts) {
+            double bytesPerMillis = Math.max(1.0, throughput.bytesPerMillis(draft.strategy())) * draft.workers();
+            long millis = (long) (draft.estimatedSize() / bytesPerMillis * contention);
+            FilePlan plan = new FilePlan(draft.file(), draft.size(), draft.strategy(), draft.workers(), draft.spillEntries(),
+                    draft.memory(), millis);
+            log.info("Plan -> File: {}, Size: {} bytes, Strategy: {}, Workers: {}, Spill Entries: {}, Estimated Memory: {} KB, Estimated Time: {} ms",
+                    plan.file().getFilename(), plan.sizeBytes(), plan.strategy(), plan.workers(), plan.spillEntries(),
+                    plan.estimatedMemoryBytes() >> 10, millis);
+            plans.add(plan);
+        }
+        return plans;
+    }
+
+    /**
+     * Strategy of a file before its time is estimated
+     * */
+    private record Draft(Resource file, long size, long estimatedSize, ExecutionStrategy strategy, int workers,
+                         int spillEntries, long memory) {
+    }
+
+    /**
+     * Heaps' law (vocabulary grows with the square root of the text), calibrated on File A
+     * Capped by the worst case of every word being unique
+     * */
+    private static long estimateVocabulary(long size, long fileASize, int fileAVocabulary) {
+        long worstCase = Math.max(1, size / BYTES_PER_WORD);
+        if (fileASize <= 0 || fileAVocabulary <= 0) {
+            return worstCase;
+        }
+        long estimate = (long) Math.ceil(fileAVocabulary * Math.sqrt((double) size / fileASize));
+        return Math.min(worstCase, Math.max(1, estimate));
+    }
+
+    public static long sizeOf(Resource resource) {
+        try {
+            return resource.contentLength();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package org.example.hashmapwithparallelprocessingapproach.planner;
+
+/**
+ * How a single pool file is counted
+ * */
+public enum ExecutionStrategy {
+    /**
+     * One counter worker, HashMap of all words (small files, or many files sharing the cores)
+     * */
+    SEQUENTIAL,
+    /**
+     * Several counter workers on the same file, HashMap of all words
+     * */
+    PARALLEL_SPLIT,
+    /**
+     * Count only words of File A, memory bounded by the vocabulary of File A
+     * */
+    STREAMING_A_INDEX,
+    /**
+     * HashMap up to a budget, then sorted runs on disk merged at the end, exact with fixed memory
+     * */
+    SPILL_TO_DISK
+}
@@ -0,0 +1,16 @@
+package org.example.hashmapwithparallelprocessingapproach.planner;
+
+import org.springframework.core.io.Resource;
+
+/**
+ * Planned execution of a single pool file, with its estimated cost
+ * spillEntries is the HashMap size of each spilling worker, only set for SPILL_TO_DISK
+ * */
+public record FilePlan(Resource file,
+                       long sizeBytes,
+                       ExecutionStrategy strategy,
+                       int workers,
+                       int spillEntries,
+                       long estimatedMemoryBytes,
+                       long estimatedMillis) {
+}
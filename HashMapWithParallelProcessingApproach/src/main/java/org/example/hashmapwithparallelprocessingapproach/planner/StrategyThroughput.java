@@ -0,0 +1,18 @@
+package org.example.hashmapwithparallelprocessingapproach.planner;
+
+/**
+ * Bytes per ms of a single counter worker with each strategy, measured on File A before the run
+ * SEQUENTIAL and PARALLEL_SPLIT count the same way, so they share the HashMap throughput
+ * */
+public record StrategyThroughput(double hashMapBytesPerMillis,
+                                 double fileAIndexBytesPerMillis,
+                                 double spillBytesPerMillis) {
+
+    public double bytesPerMillis(ExecutionStrategy strategy) {
+        return switch (strategy) {
+            case SEQUENTIAL, PARALLEL_SPLIT -> hashMapBytesPerMillis;
+            case STREAMING_A_INDEX -> fileAIndexBytesPerMillis;
+            case SPILL_TO_DISK -> spillBytesPerMillis;
+        };
+    }
+}
@@ -0,0 +1,402 @@
+package org.example.hashmapwithparallelprocessingapproach.sampling;
+
+import org.example.wordcountingcore.dto.ApproximateSimilarityResult;
+import org.example.wordcountingcore.pipeline.TokenSink;
+import org.example.wordcountingcore.pipeline.Utf8Tokenizer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Progressive sample of one pool file, read as random blocks with positional FileChannel reads
+ * 1. Blocks are picked at random without replacement, so reading all of them reads the whole file
+ * 2. Each block owns the words that start inside it (the word cut at its end is read to its end),
+ *    so every word of the file belongs to exactly one block
+ * 3. The last block is shorter than the others, so it is read first and counted as is,
+ *    counts in the sampled full blocks, scaled by (full blocks / sampled full blocks), estimate the rest of the file
+ * Each File A word is counted on its own, the other words of the file only as one total
+ * Only running sums are kept (sum and sum of squares of each File A word, of the File A total and of the other words per block),
+ * so memory doesn't grow with the number of sampled blocks
+ * Intersection, Union and Score are the ones of SimilarityResult.performComparison (Union counts every word of the file),
+ * with a confidence interval from the variance between sampled blocks
+ * Not thread-safe, each sampler is used by one thread at a time
+ * */
+public class BlockSampler implements AutoCloseable {
+
+    /**
+     * Bytes read before a block, to know whether its first word starts inside it (a UTF-8 character is at most 4 bytes)
+     * */
+    private static final int HEAD_BYTES = 4;
+
+    /**
+     * Bytes read after a block, to finish its last word (longer words are cut)
+     * */
+    private static final int TAIL_BYTES = 1024;
+
+    /**
+     * Normal quantile of the two-sided 95% interval
+     * */
+    private static final double Z_95 = 1.96;
+
+    private final String filename;
+    private final FileChannel channel;
+    private final long size;
+    private final int blockSize;
+    private final int blockCount;
+    private final int fullBlocks;
+    private final int[] order;
+    private final SplittableRandom random;
+    private int sampled;
+
+    private final FileAVocabulary vocabulary;
+    private final long[] lastBlockCounts;
+    private long lastBlockOthers;
+
+    /**
+     * Running sums over the sampled full blocks: count of each File A word, total of File A words and other words
+     * */
+    private int sampledFullBlocks;
+    private final long[] counts;
+    private final double[] squares;
+    private long totalSum;
+    private double totalSquares;
+    private long otherSum;
+    private double otherSquares;
+
+    private final ByteBuffer buffer;
+    private final Utf8Tokenizer tokenizer = new Utf8Tokenizer();
+    private final BlockCounter blockCounter;
+
+    public BlockSampler(String filename, Path path, int blockSize, FileAVocabulary vocabulary) throws IOException {
+        this(filename, path, blockSize, vocabulary, new SplittableRandom());
+    }
+
+    /**
+     * Same as the public constructor, with the random source of the block order given
+     * */
+    BlockSampler(String filename, Path path, int blockSize, FileAVocabulary vocabulary, SplittableRandom random) throws IOException {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("Sample block size must be positive");
+        }
+        this.filename = filename;
+        this.random = random;
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.size = channel.size();
+        this.blockSize = blockSize;
+        this.blockCount = (int) Math.max(1, (size + blockSize - 1) / blockSize);
+        this.fullBlocks = (int) (size / blockSize);
+        this.order = new int[blockCount];
+        for (int i = 0; i < blockCount; i++) {
+            order[i] = i;
+        }
+        this.vocabulary = vocabulary;
+        this.counts = new long[vocabulary.size()];
+        this.lastBlockCounts = new long[vocabulary.size()];
+        this.squares = new double[vocabulary.size()];
+        this.buffer = ByteBuffer.allocate(HEAD_BYTES + blockSize + TAIL_BYTES);
+        this.blockCounter = new BlockCounter(vocabulary);
+    }
+
+    /**
+     * Read up to blocks more random blocks, stopping early at the deadline
+     * @return number of blocks read
+     * */
+    public int sample(int blocks, long deadlineNanos) throws IOException {
+        int read = 0;
+        while (read < blocks && !isExhausted() && System.nanoTime() - deadlineNanos < 0) {
+            // Partial Fisher-Yates shuffle, the first sampled entries of order are the blocks already read
+            // A partial last block is read first (order is still the identity then)
+            int pick = sampled == 0 && fullBlocks < blockCount ? blockCount - 1 : sampled + random.nextInt(blockCount - sampled);
+            int block = order[pick];
+            order[pick] = order[sampled];
+            order[sampled] = block;
+
+            readBlock(block);
+            sampled++;
+            read++;
+        }
+        return read;
+    }
+
+    public boolean isExhausted() {
+        return sampled == blockCount;
+    }
+
+    public int getSampledBlocks() {
+        return sampled;
+    }
+
+    public int getBlockCount() {
+        return blockCount;
+    }
+
+    /**
+     * Estimate of the similarity from the blocks sampled so far, with its 95% interval
+     * Each File A word gets an estimated count b with its standard error, from its counts in the sampled full blocks
+     * With a the counts of File A, Intersection = (A + B - D) / 2 and Union = (A + B + D) / 2 + R,
+     * where B = sum of b, D = sum of |a - b| and R = words of the file that are not in File A,
+     * so Score = (A + B - D) / (A + B + D + 2R) grows with B and shrinks with D and R
+     * 1. min(a, b) is biased low near a (the noise above a is cut, the noise below is kept),
+     *    the point estimate adds back the expected cut under a normal error
+     * 2. The interval comes from the bounds of B and D, so a file equal to File A can reach 100%:
+     *    - B and R: normal interval from the totals of each block
+     *    - D: the estimate is biased high, so its upper bound adds the normal error of the words combined
+     *      (covariances between words are not kept, only the variance of each word),
+     *      its lower bound removes the error of each word, Bonferroni corrected over the words of File A (see upperNormalQuantile)
+     * The finite population correction (1 - sampled / full blocks) makes the interval empty once the whole file is read
+     * */
+    public ApproximateSimilarityResult estimate() {
+        long totalA = vocabulary.total();
+        int n = sampledFullBlocks;
+        if (sampled == 0 || n < Math.min(2, fullBlocks)) {
+            // Nothing known about the spread yet
+            return unknown(filename, vocabulary);
+        }
+        int[] countsA = vocabulary.counts();
+        double scale = n == 0 ? 0.0 : (double) fullBlocks / n;
+        double finiteCorrection = n >= fullBlocks ? 0.0 : 1.0 - (double) n / fullBlocks;
+        double wordQuantile = upperNormalQuantile(0.025 / countsA.length);
+        double intersection = 0;
+        double estimatedTotal = 0;
+        double distance = 0;
+        double distanceVariance = 0;
+        double lowerDistance = 0;
+        for (int id = 0; id < countsA.length; id++) {
+            double countA = countsA[id];
+            double estimate = lastBlockCounts[id] + counts[id] * scale;
+            double spread = n < 2 ? 0.0 : standardError(counts[id], squares[id]);
+            // At least the error of one occurrence, a word not seen yet is not known to be missing
+            double error = Math.max(spread, scale * Math.sqrt(finiteCorrection));
+            double min = Math.min(countA, estimate);
+            estimatedTotal += estimate;
+            distance += Math.abs(countA - estimate);
+            distanceVariance += spread * spread;
+            lowerDistance += Math.max(0.0, Math.abs(countA - estimate) - wordQuantile * error);
+            if (error == 0) {
+                intersection += min;
+            } else {
+                // For X ~ N(estimate, error^2): E[min(a, X)] = estimate - (estimate - a) * Phi(d) - error * phi(d)
+                double d = (estimate - countA) / error;
+                double expectedMin = estimate - (estimate - countA) * normalCdf(d) - error * normalPdf(d);
+                intersection += Math.min(countA, Math.max(0.0, 2 * min - expectedMin));
+            }
+        }
+        double others = lastBlockOthers + otherSum * scale;
+        double union = totalA + estimatedTotal + others - intersection;
+        double score = ratio(intersection, union);
+
+        double totalError = Z_95 * standardError(totalSum, totalSquares);
+        double lowerTotal = Math.max(0.0, estimatedTotal - totalError);
+        double upperTotal = estimatedTotal + totalError;
+        double upperDistance = distance + Z_95 * Math.sqrt(distanceVariance);
+        double othersError = Z_95 * standardError(otherSum, otherSquares);
+        double lowerOthers = Math.max(0.0, others - othersError);
+        double upperOthers = others + othersError;
+
+        double lowerIntersection = Math.max(0.0, (totalA + lowerTotal - upperDistance) / 2);
+        double upperIntersection = Math.min(Math.min(totalA, upperTotal), (totalA + upperTotal - lowerDistance) / 2);
+        double lowerUnion = Math.max(Math.max(totalA, lowerTotal + lowerOthers), (totalA + lowerTotal + lowerDistance) / 2 + lowerOthers);
+        double upperUnion = (totalA + upperTotal + upperDistance) / 2 + upperOthers;
+        double lowerScore = ratio(totalA + lowerTotal - upperDistance, totalA + lowerTotal + upperDistance + 2 * upperOthers);
+        double upperScore = ratio(totalA + upperTotal - lowerDistance, totalA + upperTotal + lowerDistance + 2 * lowerOthers);
+        return new ApproximateSimilarityResult(filename, Math.round(union), Math.round(intersection), score * 100.0,
+                (long) Math.floor(Math.min(intersection, lowerIntersection)),
+                (long) Math.ceil(Math.max(intersection, upperIntersection)),
+                (long) Math.floor(Math.min(union, lowerUnion)),
+                (long) Math.ceil(Math.max(union, upperUnion)),
+                Math.max(0.0, Math.min(score, lowerScore)) * 100.0,
+                Math.min(1.0, Math.max(score, upperScore)) * 100.0);
+    }
+
+    /**
+     * Estimate of a file with nothing sampled: any score in [0, 100]
+     * */
+    public static ApproximateSimilarityResult unknown(String filename, FileAVocabulary vocabulary) {
+        long totalA = vocabulary.total();
+        return new ApproximateSimilarityResult(filename, totalA, 0, 0.0,
+                0, totalA, totalA, Long.MAX_VALUE, 0.0, 100.0);
+    }
+
+    private static double ratio(double intersection, double union) {
+        return union == 0 ? 0.0 : intersection / union;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Standard error of (full blocks * mean of a value), from its sum and sum of squares over the sampled full blocks,
+     * sampling full blocks without replacement
+     * Unknown (infinite) with a single block, unless it is the whole file
+     * */
+    private double standardError(double sum, double sumOfSquares) {
+        int n = sampledFullBlocks;
+        if (n >= fullBlocks) {
+            return 0.0;
+        }
+        double finiteCorrection = 1.0 - (double) n / fullBlocks;
+        if (n < 2) {
+            return Double.POSITIVE_INFINITY;
+        }
+        double mean = sum / n;
+        double variance = Math.max(0.0, (sumOfSquares - n * mean * mean) / (n - 1));
+        return fullBlocks * Math.sqrt(finiteCorrection * variance / n);
+    }
+
+    /**
+     * Upper tail quantile of the standard normal: x with P(X > x) = tail, for tail in (0, 0.5]
+     * Rational approximation of Acklam (relative error below 1.15e-9), the Bonferroni tail of a large vocabulary is far below 1e-6
+     * */
+    static double upperNormalQuantile(double tail) {
+        if (!(tail > 0 && tail <= 0.5)) {
+            throw new IllegalArgumentException("Tail must be in (0, 0.5]: " + tail);
+        }
+        if (tail < 0.02425) {
+            double q = Math.sqrt(-2 * Math.log(tail));
+            return -(((((-7.784894002430293e-03 * q - 3.223964580411365e-01) * q - 2.400758277161838e+00) * q
+                    - 2.549732539343734e+00) * q + 4.374664141464968e+00) * q + 2.938163982698783e+00)
+                    / ((((7.784695709041462e-03 * q + 3.224671290700398e-01) * q + 2.445134137142996e+00) * q
+                    + 3.754408661907416e+00) * q + 1);
+        }
+        double q = 0.5 - tail;
+        double r = q * q;
+        return (((((-3.969683028665376e+01 * r + 2.209460984245205e+02) * r - 2.759285104469687e+02) * r
+                + 1.383577518672690e+02) * r - 3.066479806614716e+01) * r + 2.506628277459239e+00) * q
+                / (((((-5.447609879822406e+01 * r + 1.615858368580409e+02) * r - 1.556989798598866e+02) * r
+                + 6.680131188771972e+01) * r - 1.328068155288572e+01) * r + 1);
+    }
+
+    private static double normalPdf(double x) {
+        return Math.exp(-0.5 * x * x) / Math.sqrt(2 * Math.PI);
+    }
+
+    /**
+     * Normal CDF, with the erf approximation of Abramowitz and Stegun 7.1.26 (error below 1.5e-7)
+     * Only used for the bias of min(a, b), where this error is far below the sampling error
+     * */
+    private static double normalCdf(double x) {
+        double t = 1.0 / (1.0 + 0.3275911 * Math.abs(x) / Math.sqrt(2));
+        double erf = 1.0 - t * (0.254829592 + t * (-0.284496736 + t * (1.421413741 + t * (-1.453152027 + t * 1.061405429))))
+                * Math.exp(-x * x / 2);
+        return x >= 0 ? 0.5 * (1 + erf) : 0.5 * (1 - erf);
+    }
+
+    /**
+     * Read the block with a few bytes around it, then count the words it owns
+     * */
+    private void readBlock(int block) throws IOException {
+        long blockStart = (long) block * blockSize;
+        long blockEnd = Math.min(size, blockStart + blockSize);
+        long readStart = Math.max(0, blockStart - HEAD_BYTES);
+        long readEnd = Math.min(size, blockEnd + TAIL_BYTES);
+
+        buffer.clear().limit((int) (readEnd - readStart));
+        long position = readStart;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                break;
+            }
+            position += read;
+        }
+        byte[] bytes = buffer.array();
+        int length = buffer.position();
+        int start = (int) (blockStart - readStart);
+        int end = (int) Math.min(length, blockEnd - readStart);
+
+        // A word crossing the start belongs to the previous block, a word crossing the end to this one
+        int from = start == 0 || previousIsSeparator(bytes, start, length) ? start : Utf8Tokenizer.nextSeparator(bytes, start, length);
+        int to = blockEnd == size || previousIsSeparator(bytes, end, length) ? end : Utf8Tokenizer.nextSeparator(bytes, end, length);
+        if (from < to) {
+            tokenizer.tokenize(bytes, from, to, blockCounter);
+        }
+
+        int[] ids = blockCounter.takeIds();
+        int blockOthers = blockCounter.takeOthers();
+        if (block >= fullBlocks) {
+            lastBlockOthers += blockOthers;
+            for (int id : ids) {
+                lastBlockCounts[id] += blockCounter.take(id);
+            }
+            return;
+        }
+        long blockTotal = 0;
+        for (int id : ids) {
+            int occurrences = blockCounter.take(id);
+            counts[id] += occurrences;
+            squares[id] += (double) occurrences * occurrences;
+            blockTotal += occurrences;
+        }
+        sampledFullBlocks++;
+        totalSum += blockTotal;
+        totalSquares += (double) blockTotal * blockTotal;
+        otherSum += blockOthers;
+        otherSquares += (double) blockOthers * blockOthers;
+    }
+
+    /**
+     * True if the character just before position is a separator
+     * */
+    private static boolean previousIsSeparator(byte[] bytes, int position, int length) {
+        int i = position - 1;
+        while (i > 0 && position - i < HEAD_BYTES && (bytes[i] & 0xC0) == 0x80) {
+            i--;
+        }
+        return Utf8Tokenizer.isSeparator(bytes, i, length);
+    }
+
+    /**
+     * Counts of File A words in the current block, other words are only counted as one total
+     * */
+    private static final class BlockCounter implements TokenSink {
+        private final FileAVocabulary vocabulary;
+        private final int[] counts;
+        private final int[] touched;
+        private int touchedCount;
+        private int others;
+
+        private BlockCounter(FileAVocabulary vocabulary) {
+            this.vocabulary = vocabulary;
+            this.counts = new int[vocabulary.size()];
+            this.touched = new int[vocabulary.size()];
+        }
+
+        @Override
+        public void add(String word) {
+            Integer id = vocabulary.ids().get(word);
+            if (id == null) {
+                others++;
+            } else if (counts[id]++ == 0) {
+                touched[touchedCount++] = id;
+            }
+        }
+
+        /**
+         * Ids of the words found in the block, and reset them for the next block
+         * */
+        private int[] takeIds() {
+            int[] ids = Arrays.copyOf(touched, touchedCount);
+            touchedCount = 0;
+            return ids;
+        }
+
+        private int takeOthers() {
+            int count = others;
+            others = 0;
+            return count;
+        }
+
+        private int take(int id) {
+            int count = counts[id];
+            counts[id] = 0;
+            return count;
+        }
+    }
+}
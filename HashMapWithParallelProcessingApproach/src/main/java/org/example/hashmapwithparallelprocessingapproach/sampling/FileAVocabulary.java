@@ -0,0 +1,30 @@
+package org.example.hashmapwithparallelprocessingapproach.sampling;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Words of File A numbered from 0, so samplers keep their counts in int arrays
+ * @param ids id of each word
+ * @param counts count in File A of each id
+ * @param total sum of all counts
+ * */
+public record FileAVocabulary(Map<String, Integer> ids, int[] counts, long total) {
+
+    public static FileAVocabulary of(Map<String, Integer> fileAFreq) {
+        Map<String, Integer> ids = new HashMap<>(fileAFreq.size() * 2);
+        int[] counts = new int[fileAFreq.size()];
+        long total = 0;
+        for (Map.Entry<String, Integer> entry : fileAFreq.entrySet()) {
+            int id = ids.size();
+            ids.put(entry.getKey(), id);
+            counts[id] = entry.getValue();
+            total += entry.getValue();
+        }
+        return new FileAVocabulary(ids, counts, total);
+    }
+
+    public int size() {
+        return counts.length;
+    }
+}
@@ -1,25 +1,66 @@
 package org.example.hashmapwithparallelprocessingapproach.service;
 
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.example.hashmapwithparallelprocessingapproach.deadline.DeadlineScope;
+import org.example.hashmapwithparallelprocessingapproach.dto.FileStatus;
 import org.example.hashmapwithparallelprocessingapproach.dto.FinalResult;
-import org.example.hashmapwithparallelprocessingapproach.dto.SimilarityResult;
+import org.example.hashmapwithparallelprocessingapproach.dto.PartialResult;
+import org.example.hashmapwithparallelprocessingapproach.pipeline.FileAIndexWordCounter;
+import org.example.hashmapwithparallelprocessingapproach.planner.ExecutionPlanner;
+import org.example.hashmapwithparallelprocessingapproach.planner.ExecutionStrategy;
+import org.example.hashmapwithparallelprocessingapproach.planner.FilePlan;
+import org.example.hashmapwithparallelprocessingapproach.planner.StrategyThroughput;
+import org.example.hashmapwithparallelprocessingapproach.sampling.BlockSampler;
+import org.example.hashmapwithparallelprocessingapproach.sampling.FileAVocabulary;
+import org.example.wordcountingcore.dto.ApproximateSimilarityResult;
+import org.example.wordcountingcore.dto.SimilarityResult;
+import org.example.wordcountingcore.ngram.ShingleCounter;
+import org.example.wordcountingcore.pipeline.HashMapWordCounter;
+import org.example.wordcountingcore.pipeline.WordCountPipeline;
+import org.example.wordcountingcore.sketch.BoundedWordCounter;
+import org.example.wordcountingcore.spill.SpillingWordCounter;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ByteArrayResource;
 import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Service;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+import static org.example.wordcountingcore.dto.SimilarityResult.performComparison;
 
 @Service
 @Slf4j
+@RequiredArgsConstructor
 public class SimilarityService {
 
+    private static final String BOUNDED_MODE = "bounded";
+    private static final String SPILL_MODE = "spill";
+    private static final String NGRAM_MODE = "ngram";
+
+    /**
+     * Blocks of each file read by the first sampling round, so the first intervals come from enough blocks
+     * */
+    private static final int MIN_SAMPLED_BLOCKS = 8;
+
+    /**
+     * Bytes of File A counted to measure the throughput of each strategy for the planner
+     * */
+    private static final int CALIBRATION_BYTES = 8 << 20;
+
     /**
      * File A
      * */
@@ -32,9 +73,74 @@ public class SimilarityService {
     @Value("${input.pool}")
     private Resource[] poolDir;
 
+    /**
+     * Counting mode of pool files
+     * exact : HashMap of all words, memory grows with the vocabulary of the file
+     * bounded : top-N words tracked exactly + Count-Min sketch for the rest, fixed memory per file
+     * spill : HashMap up to spill-entries words, then sorted runs on disk merged at the end, exact with fixed memory
+     * ngram : shingles of ngram-size consecutive words instead of single words, so word order counts
+     * */
+    @Value("${counting.mode}")
+    private String countingMode;
+
+    @Value("${counting.heavy-hitters}")
+    private int heavyHitters;
+
+    @Value("${counting.sketch-width}")
+    private int sketchWidth;
+
+    @Value("${counting.sketch-depth}")
+    private int sketchDepth;
+
+    @Value("${counting.spill-entries}")
+    private int spillEntries;
+
+    @Value("${counting.spill-directory}")
+    private String spillDirectory;
+
+    @Value("${counting.ngram-size}")
+    private int ngramSize;
+
+    /**
+     * Deadlines of a deadline-bound run, for the whole run and for each file
+     * */
+    @Value("${execution.run-timeout-ms}")
+    private long runTimeoutMillis;
+
+    @Value("${execution.file-timeout-ms}")
+    private long fileTimeoutMillis;
+
+    /**
+     * Sampled mode: time budget of the whole run, size of a sampled block,
+     * and width of the score interval under which two neighbours in the ranking are considered tied
+     * */
+    @Value("${execution.sample-budget-ms}")
+    private long sampleBudgetMillis;
+
+    @Value("${execution.sample-block-size}")
+    private int sampleBlockSize;
+
+    @Value("${execution.sample-tolerance}")
+    private double sampleTolerance;
+
+    /**
+     * Reads each file in a separate stage from counting, see WordCountPipeline
+     * */
+    private final WordCountPipeline wordCountPipeline;
+
+    /**
+     * Picks the strategy of each file when running with the planner
+     * */
+    private final ExecutionPlanner executionPlanner;
+
     private final Map<String, Integer> fileAFreq = new HashMap<>();
     private final FinalResult finalResult = new FinalResult();
 
+    /**
+     * Shingles of File A, only loaded in ngram mode
+     * */
+    private ShingleCounter fileAShingles;
+
 
     /**
      * Main Service to compare File A with all files in Pool Directory
@@ -46,12 +152,7 @@ public class SimilarityService {
 
         loadFileAFreq();
 
-        // For Platform Thread -> Executors.newFixedThreadPool(poolDir.length);
-        try (ExecutorService executorService = Executors.newVirtualThreadPerTaskExecutor()) {
-            for(Resource r : poolDir){
-                executorService.submit(()->calculateSimilarity(r));
-            }
-        }
+        forEachOnVirtualThread(List.of(poolDir), r -> finalResult.addSimilarityResult(calculateWithCountingMode(r)));
 
         finalResult.sortByScoreDescending();
 
@@ -67,64 +168,426 @@ public class SimilarityService {
         log.info("Total time to process all files: {} ms", elapsedTime);
 
     }
+    /**
+     * Same as compareFilesSimilarityService, but the strategy of each file is picked by the ExecutionPlanner
+     * Each File is still executed in its own Virtual Thread, with the planned number of workers
+     * Every strategy gets the same Intersection and Union as exact counting, so the score doesn't depend on the plan
+     * Strategies count single words exactly, so bounded and ngram counting modes are rejected instead of being ignored
+     * */
+    public void compareFilesWithPlannerService() throws IOException {
+        if (BOUNDED_MODE.equals(countingMode) || NGRAM_MODE.equals(countingMode)) {
+            throw new IllegalStateException("Planned execution gives exact word scores, counting.mode=" + countingMode
+                    + " is only supported by the fixed and deadline execution modes");
+        }
+
+        long startTime = System.nanoTime();
+
+        loadFileAFreq();
+
+        List<FilePlan> plans = executionPlanner.plan(poolDir, ExecutionPlanner.sizeOf(fileAPath), fileAFreq.size(),
+                measureThroughput(), spillEntries);
+
+        forEachOnVirtualThread(plans, this::executePlan);
+
+        finalResult.sortByScoreDescending();
+
+        long endTime = System.nanoTime();
+        long elapsedTime = (endTime - startTime) / 1_000_000;
+
+        for(SimilarityResult result : finalResult.getSimilarities()){
+            log.info("-------- File: {}, Union Count: {}, Intersection Count: {}, Similarity Score: {} --------",
+                    result.getFilename(), result.getTotalCount(), result.getIntersectionCount(), result.getSimilarityScore());
+        }
+
+        log.info("Total time to process all files: {} ms", elapsedTime);
+    }
+
+    /**
+     * Run the task for each item on its own Virtual Thread, and wait for all of them
+     * The first failing task cancels the others, and its exception fails the run instead of being lost in its Future
+     * */
+    private <R> void forEachOnVirtualThread(List<R> items, Consumer<R> task) {
+        // For Platform Thread -> Executors.newFixedThreadPool(items.size());
+        try (ExecutorService executorService = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> futures = new ArrayList<>(items.size());
+            for (R item : items) {
+                futures.add(executorService.submit(() -> task.accept(item)));
+            }
+            try {
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            } catch (ExecutionException e) {
+                executorService.shutdownNow();
+                throw new RuntimeException(e.getCause().getMessage(), e.getCause());
+            } catch (InterruptedException e) {
+                executorService.shutdownNow();
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    /**
+     * Bytes per ms of a single worker with each strategy, measured on the start of File A held in memory
+     * Each strategy counts and compares the sample as executePlan does, so their relative costs are measured, not guessed
+     * The spilling counter holds an eighth of the sample vocabulary, so writing and merging the runs is timed too
+     * Each strategy counts the sample twice and only the second pass is timed, so JIT warm-up is not taken as counting time
+     * */
+    private StrategyThroughput measureThroughput() throws IOException {
+        byte[] sample;
+        try (InputStream inputStream = fileAPath.getInputStream()) {
+            sample = inputStream.readNBytes(CALIBRATION_BYTES);
+        }
+        Resource resource = new ByteArrayResource(sample);
+        int sampleSpillEntries = Math.max(1, wordCountPipeline.count(resource).size() / 8);
+        StrategyThroughput throughput = new StrategyThroughput(
+                measureThroughput(resource, ExecutionStrategy.SEQUENTIAL, 0),
+                measureThroughput(resource, ExecutionStrategy.STREAMING_A_INDEX, 0),
+                measureThroughput(resource, ExecutionStrategy.SPILL_TO_DISK, sampleSpillEntries));
+        log.info("Throughput per worker over {} bytes of File A: HashMap {} bytes/ms, File A index {} bytes/ms, Spill {} bytes/ms",
+                sample.length, (long) throughput.hashMapBytesPerMillis(), (long) throughput.fileAIndexBytesPerMillis(),
+                (long) throughput.spillBytesPerMillis());
+        return throughput;
+    }
+
+    private double measureThroughput(Resource sample, ExecutionStrategy strategy, int spillEntries) throws IOException {
+        long elapsedNanos = 0;
+        for (int pass = 0; pass < 2; pass++) {
+            long startTime = System.nanoTime();
+            countWithStrategy(sample, strategy, 1, spillEntries);
+            elapsedNanos = System.nanoTime() - startTime;
+        }
+        return sample.contentLength() / Math.max(0.001, elapsedNanos / 1_000_000.0);
+    }
+
+    /**
+     * Count a file with its planned strategy, and log the estimated cost against the actual one
+     * */
+    public void executePlan(FilePlan plan){
+        Resource file = plan.file();
+        long startTime = System.nanoTime();
+        SimilarityResult result;
+        try {
+            result = countWithStrategy(file, plan.strategy(), plan.workers(), plan.spillEntries());
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+
+        long endTime = System.nanoTime();
+        long elapsedTime = (endTime - startTime) / 1_000_000;
+        log.info("File: {} processed with {} ({} workers), Estimated: {} ms, Actual: {} ms",
+                file.getFilename(), plan.strategy(), plan.workers(), plan.estimatedMillis(), elapsedTime);
+
+        finalResult.addSimilarityResult(result);
+    }
+
+    private SimilarityResult countWithStrategy(Resource file, ExecutionStrategy strategy, int workers, int spillEntries) throws IOException {
+        return switch (strategy) {
+            case SEQUENTIAL, PARALLEL_SPLIT -> performComparison(file.getFilename(), fileAFreq,
+                    wordCountPipeline.count(file, HashMapWordCounter::new, workers).getFrequency());
+            case STREAMING_A_INDEX -> wordCountPipeline.count(file,
+                    () -> new FileAIndexWordCounter(fileAFreq), workers).compareWith(file.getFilename());
+            case SPILL_TO_DISK -> wordCountPipeline.count(file,
+                    () -> new SpillingWordCounter(spillEntries, Path.of(spillDirectory)), workers)
+                    .compareWith(file.getFilename(), fileAFreq);
+        };
+    }
+    /**
+     * Same as compareFilesSimilarityService, but bound by deadlines (see DeadlineScope)
+     * The run deadline starts before File A is loaded, and File A is loaded inside the scope with the file timeout,
+     * so a slow File A is cancelled too, and the pool files are then not compared (CANCELLED)
+     * A file running longer than file-timeout is cancelled, and the run stops at run-timeout
+     * A failing file cancels the others and fails the run with its exception
+     * @return similarities of files that finished in time, and the status of File A and of every pool file
+     * */
+    public PartialResult compareFilesWithDeadlineService() {
+
+        long startTime = System.nanoTime();
+
+        List<SimilarityResult> similarities = new ArrayList<>();
+        Map<String, FileStatus> fileStatuses = new LinkedHashMap<>();
+        Duration fileTimeout = Duration.ofMillis(fileTimeoutMillis);
+        try (DeadlineScope<SimilarityResult> scope = new DeadlineScope<>(Duration.ofMillis(runTimeoutMillis))) {
+            scope.fork(fileAPath.getDescription(), ()->{
+                loadFileAFreq();
+                return null;
+            });
+            FileStatus fileAStatus = scope.join(fileTimeout).getFirst().status();
+            fileStatuses.put(fileAPath.getDescription(), fileAStatus);
+
+            if (fileAStatus == FileStatus.COMPLETED) {
+                for(Resource r : poolDir){
+                    scope.fork(r.getDescription(), ()->calculateWithCountingMode(r));
+                }
+                for (DeadlineScope.Outcome<SimilarityResult> outcome : scope.join(fileTimeout)) {
+                    fileStatuses.put(outcome.name(), outcome.status());
+                    if (outcome.status() == FileStatus.COMPLETED) {
+                        similarities.add(outcome.result());
+                    }
+                }
+            } else {
+                for(Resource r : poolDir){
+                    fileStatuses.put(r.getDescription(), FileStatus.CANCELLED);
+                }
+            }
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getMessage(), e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+
+        PartialResult partialResult = new PartialResult(similarities, fileStatuses);
+
+        long endTime = System.nanoTime();
+        long elapsedTime = (endTime - startTime) / 1_000_000;
+
+        for(SimilarityResult result : partialResult.getSimilarities()){
+            log.info("-------- File: {}, Union Count: {}, Intersection Count: {}, Similarity Score: {} --------",
+                    result.getFilename(), result.getTotalCount(), result.getIntersectionCount(), result.getSimilarityScore());
+        }
+        partialResult.getFileStatuses().forEach((description, status) -> {
+            if (status != FileStatus.COMPLETED) {
+                log.warn("-------- File: {}, Unfinished: {} --------", description, status);
+            }
+        });
+
+        log.info("Total time to process all files: {} ms, Complete: {}", elapsedTime, partialResult.isComplete());
+        return partialResult;
+    }
+    /**
+     * Rough ranking within a time budget, from random blocks of each pool file (see BlockSampler)
+     * Each round reads as many blocks as all previous rounds (at least MIN_SAMPLED_BLOCKS), for every file at the same time,
+     * until the budget runs out, every file is fully read, or the ranking settles:
+     * each two neighbours in the ranking have separated intervals, or both intervals are narrower than sample-tolerance (tied)
+     * The budget starts before File A is loaded, so it bounds the whole run
+     * Files that are not on the file system (inside a jar) can't be read at random positions, they are not sampled,
+     * and returned with the interval [0, 100] (counting them fully would not be bound by the budget)
+     * @return estimated similarities of every pool file sorted by score descending, with their 95% intervals
+     *         (a file with no sampled block has the interval [0, 100])
+     * */
+    public List<ApproximateSimilarityResult> compareFilesWithSamplingService() throws IOException {
+
+        long startTime = System.nanoTime();
+
+        long deadline = startTime + Duration.ofMillis(sampleBudgetMillis).toNanos();
+        loadFileAFreq();
+        FileAVocabulary vocabulary = FileAVocabulary.of(fileAFreq);
+
+        List<ApproximateSimilarityResult> estimates = new ArrayList<>();
+        List<BlockSampler> samplers = new ArrayList<>();
+        try {
+            for(Resource r : poolDir){
+                if (r.isFile()) {
+                    samplers.add(new BlockSampler(r.getFilename(), r.getFile().toPath(), sampleBlockSize, vocabulary));
+                } else {
+                    log.warn("File: {} is not on the file system, it can't be sampled", r.getFilename());
+                    estimates.add(BlockSampler.unknown(r.getFilename(), vocabulary));
+                }
+            }
+
+            int blocksPerRound = MIN_SAMPLED_BLOCKS;
+            int round = 0;
+            boolean settled = false;
+            while (!settled && System.nanoTime() - deadline < 0
+                    && !samplers.stream().allMatch(BlockSampler::isExhausted)) {
+                round++;
+                sampleRound(samplers, blocksPerRound, deadline);
+                // Files that are not sampled stay [0, 100], they are left out so the others can settle
+                settled = isSettled(rank(List.of(), samplers));
+                log.info("Sampling round {} done in {} ms, {} blocks per file, Settled: {}",
+                        round, (System.nanoTime() - startTime) / 1_000_000, blocksPerRound, settled);
+                blocksPerRound = samplers.stream().mapToInt(BlockSampler::getSampledBlocks).max().orElse(blocksPerRound);
+            }
+            estimates = rank(estimates, samplers);
+        } finally {
+            for (BlockSampler sampler : samplers) {
+                sampler.close();
+            }
+        }
+
+        long endTime = System.nanoTime();
+        long elapsedTime = (endTime - startTime) / 1_000_000;
+
+        for(ApproximateSimilarityResult result : estimates){
+            log.info("-------- File: {}, Union Count: {}, Intersection Count: {}, Similarity Score: {}, 95% Interval: [{}, {}] --------",
+                    result.getFilename(), result.getTotalCount(), result.getIntersectionCount(), result.getSimilarityScore(),
+                    result.getScoreLowerBound(), result.getScoreUpperBound());
+        }
+
+        log.info("Total time to process all files: {} ms", elapsedTime);
+        return estimates;
+    }
+
+    /**
+     * Files that can't be sampled and the current estimate of every sampled file, sorted by score descending
+     * */
+    private static List<ApproximateSimilarityResult> rank(List<ApproximateSimilarityResult> unsampled, List<BlockSampler> samplers) {
+        List<ApproximateSimilarityResult> ranking = new ArrayList<>(unsampled);
+        for (BlockSampler sampler : samplers) {
+            ranking.add(sampler.estimate());
+        }
+        ranking.sort((a, b) -> Double.compare(b.getSimilarityScore(), a.getSimilarityScore()));
+        return ranking;
+    }
+
+    /**
+     * Sample more blocks of every file, each file on its own Virtual Thread
+     * */
+    private void sampleRound(List<BlockSampler> samplers, int blocks, long deadline) throws IOException {
+        try (ExecutorService executorService = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<Integer>> rounds = new ArrayList<>(samplers.size());
+            for (BlockSampler sampler : samplers) {
+                rounds.add(executorService.submit(() -> sampler.sample(blocks, deadline)));
+            }
+            for (Future<Integer> future : rounds) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            throw new RuntimeException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * True when every two neighbours in the ranking are separated, or tied within the tolerance
+     * */
+    private boolean isSettled(List<ApproximateSimilarityResult> ranking) {
+        for (int i = 1; i < ranking.size(); i++) {
+            ApproximateSimilarityResult higher = ranking.get(i - 1);
+            ApproximateSimilarityResult lower = ranking.get(i);
+            boolean separated = lower.getScoreUpperBound() < higher.getScoreLowerBound();
+            boolean tied = higher.getScoreUpperBound() - higher.getScoreLowerBound() <= sampleTolerance
+                    && lower.getScoreUpperBound() - lower.getScoreLowerBound() <= sampleTolerance;
+            if (!separated && !tied) {
+                return false;
+            }
+        }
+        return true;
+    }
     /**
      * Load File A words in a HashMap
+     * In ngram mode, its shingles are loaded too (words are still needed by the planner)
      * */
     public void loadFileAFreq() throws IOException {
         log.info("Start to compare files similarity service");
         long startTime = System.nanoTime();
-        InputStream inputStream = fileAPath.getInputStream();
-        BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream));
-        String line;
-        while((line = reader.readLine()) != null) {
-            String[] words = line.split("\\W+");
-            for(String word : words){
-                if(word.matches("[a-zA-Z]+")){
-                    fileAFreq.put(word, fileAFreq.getOrDefault(word, 0) + 1);
-                }
-            }
+        fileAFreq.putAll(wordCountPipeline.count(fileAPath));
+        if (NGRAM_MODE.equals(countingMode)) {
+            fileAShingles = wordCountPipeline.count(fileAPath, () -> new ShingleCounter(ngramSize));
         }
-        reader.close();
         long endTime = System.nanoTime();
         long elapsedTime = (endTime - startTime) / 1_000_000;
         log.info("File A loaded in {} ms", elapsedTime);
     }
+    /**
+     * Calculate Similarity of a file with the configured counting mode
+     * */
+    public SimilarityResult calculateWithCountingMode(Resource file){
+        return switch (countingMode) {
+            case BOUNDED_MODE -> calculateBoundedSimilarity(file);
+            case SPILL_MODE -> calculateSpillSimilarity(file);
+            case NGRAM_MODE -> calculateNgramSimilarity(file);
+            default -> calculateSimilarity(file);
+        };
+    }
     /**
      * For Each File in resource Pool
      * Calculate Similarity with File A
-     * And Save it in FinalResult, to be sorted and displayed later
+     * The caller saves it in FinalResult, to be sorted and displayed later
      * */
-    public void calculateSimilarity(Resource file){
+    public SimilarityResult calculateSimilarity(Resource file){
         log.info("Start to calculate similarity of file: {}", file.getFilename());
         long startTime = System.nanoTime();
-        Map<String, Integer> fileFreq = new HashMap<>();
-        try (BufferedReader  reader = new BufferedReader(new InputStreamReader(file.getInputStream()))){
-            String line;
-            while((line = reader.readLine()) != null) {
-                String[] words = line.split("\\W+");
-                for(String word : words){
-                    if(word.matches("[a-zA-Z]+")){
-                        fileFreq.put(word, fileFreq.getOrDefault(word, 0) + 1);
-                    }
-                }
-            }
+        Map<String, Integer> fileFreq;
+        try {
+            fileFreq = wordCountPipeline.count(file);
         } catch (IOException e) {
             throw new RuntimeException(e);
 
         }
-        long intersectionCount = 0;
-        long unionCount = 0;
-        for(String word : fileFreq.keySet()){
-            intersectionCount += Math.min(fileFreq.getOrDefault(word, 0), fileAFreq.getOrDefault(word,0));
-            unionCount += Math.max(fileFreq.getOrDefault(word, 0), fileAFreq.getOrDefault(word,0));
-        }
-        double score = unionCount == 0 ? 0.0 : ((double) intersectionCount / unionCount) * 100.0;
+        SimilarityResult result = performComparison(file.getFilename(), fileAFreq, fileFreq);
 
         long endTime = System.nanoTime();
         long elapsedTime = (endTime - startTime) / 1_000_000;
         log.info("File: {} processed in {} ms", file.getFilename(), elapsedTime);
 
-        SimilarityResult result = new SimilarityResult(file.getFilename(), unionCount, intersectionCount, score);
-        finalResult.addSimilarityResult(result);
+        return result;
+    }
+    /**
+     * Same as calculateSimilarity, but with fixed memory per file (see BoundedWordCounter)
+     * Intersection and Union are computed over words of File A, with their error bounds
+     * */
+    public SimilarityResult calculateBoundedSimilarity(Resource file){
+        log.info("Start to calculate bounded similarity of file: {}", file.getFilename());
+        long startTime = System.nanoTime();
+        BoundedWordCounter counter;
+        try {
+            counter = wordCountPipeline.count(file, () -> new BoundedWordCounter(heavyHitters, sketchWidth, sketchDepth));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        ApproximateSimilarityResult result = counter.compareWith(file.getFilename(), fileAFreq);
+
+        long endTime = System.nanoTime();
+        long elapsedTime = (endTime - startTime) / 1_000_000;
+        log.info("File: {} processed in {} ms, Intersection: [{}, {}], Union: [{}, {}], Similarity Score: [{}, {}]",
+                file.getFilename(), elapsedTime,
+                result.getIntersectionLowerBound(), result.getIntersectionUpperBound(),
+                result.getUnionLowerBound(), result.getUnionUpperBound(),
+                result.getScoreLowerBound(), result.getScoreUpperBound());
+
+        return result;
+    }
+
+    /**
+     * Same as calculateSimilarity, but words are spilled to sorted runs on disk once the budget is reached
+     * (see SpillingWordCounter), so huge vocabularies get an exact score with fixed memory
+     * */
+    public SimilarityResult calculateSpillSimilarity(Resource file){
+        log.info("Start to calculate spill similarity of file: {}", file.getFilename());
+        long startTime = System.nanoTime();
+        SpillingWordCounter counter;
+        try {
+            counter = wordCountPipeline.count(file, () -> new SpillingWordCounter(spillEntries, Path.of(spillDirectory)));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        int runCount = counter.getRunCount();
+        SimilarityResult result = counter.compareWith(file.getFilename(), fileAFreq);
+
+        long endTime = System.nanoTime();
+        long elapsedTime = (endTime - startTime) / 1_000_000;
+        log.info("File: {} processed in {} ms, Spilled Runs: {}", file.getFilename(), elapsedTime, runCount);
+
+        return result;
+    }
+
+    /**
+     * Same as calculateSimilarity, but over shingles of ngram-size consecutive words (see ShingleCounter)
+     * Shingles crossing chunks counted by different workers are stitched back in file order by ShingleCounter
+     * */
+    public SimilarityResult calculateNgramSimilarity(Resource file){
+        log.info("Start to calculate n-gram similarity of file: {}", file.getFilename());
+        long startTime = System.nanoTime();
+        ShingleCounter counter;
+        try {
+            counter = wordCountPipeline.count(file, () -> new ShingleCounter(ngramSize));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        SimilarityResult result = counter.compareWith(file.getFilename(), fileAShingles);
+
+        long endTime = System.nanoTime();
+        long elapsedTime = (endTime - startTime) / 1_000_000;
+        log.info("File: {} processed in {} ms, Unique Shingles: {}", file.getFilename(), elapsedTime, counter.getUniqueShingles());
+
+        return result;
     }
 }
@@ -0,0 +1,112 @@
+package org.example.hashmapwithparallelprocessingapproach.deadline;
+
+import org.example.hashmapwithparallelprocessingapproach.dto.FileStatus;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DeadlineScopeTest {
+
+    @Test
+    void slowTaskTimesOutWhileOthersComplete() throws Exception {
+        List<DeadlineScope.Outcome<String>> outcomes;
+        try (DeadlineScope<String> scope = new DeadlineScope<>(Duration.ofSeconds(30))) {
+            scope.fork("fast", () -> "fast result");
+            scope.fork("slow", () -> {
+                Thread.sleep(60_000);
+                return "slow result";
+            });
+            outcomes = scope.join(Duration.ofMillis(200));
+        }
+
+        assertThat(outcomes).containsExactly(
+                new DeadlineScope.Outcome<>("fast", FileStatus.COMPLETED, "fast result"),
+                new DeadlineScope.Outcome<>("slow", FileStatus.TIMED_OUT, null));
+    }
+
+    @Test
+    void runDeadlineCancelsUnfinishedTasks() throws Exception {
+        List<DeadlineScope.Outcome<String>> outcomes;
+        try (DeadlineScope<String> scope = new DeadlineScope<>(Duration.ofMillis(200))) {
+            scope.fork("fast", () -> "fast result");
+            scope.fork("slow", () -> {
+                Thread.sleep(60_000);
+                return "slow result";
+            });
+            outcomes = scope.join(Duration.ofSeconds(30));
+        }
+
+        assertThat(outcomes).extracting(DeadlineScope.Outcome::status)
+                .containsExactly(FileStatus.COMPLETED, FileStatus.CANCELLED);
+    }
+
+    @Test
+    void runDeadlineStartsWhenTheScopeIsOpened() throws Exception {
+        try (DeadlineScope<String> scope = new DeadlineScope<>(Duration.ofMillis(600))) {
+            scope.fork("first step", () -> {
+                Thread.sleep(300);
+                return "first result";
+            });
+            assertThat(scope.join(Duration.ofSeconds(30))).containsExactly(
+                    new DeadlineScope.Outcome<>("first step", FileStatus.COMPLETED, "first result"));
+
+            // The second step only gets what is left of the run, and join only returns its own tasks
+            scope.fork("second step", () -> {
+                Thread.sleep(60_000);
+                return "second result";
+            });
+            long startTime = System.nanoTime();
+            assertThat(scope.join(Duration.ofSeconds(30))).containsExactly(
+                    new DeadlineScope.Outcome<>("second step", FileStatus.CANCELLED, null));
+            assertThat(Duration.ofNanos(System.nanoTime() - startTime)).isLessThan(Duration.ofMillis(600));
+        }
+    }
+
+    @Test
+    void tasksFinishedPastTheirDeadlineAreCollectedNotCancelled() throws Exception {
+        int tasks = 200;
+        CountDownLatch done = new CountDownLatch(tasks);
+        List<DeadlineScope.Outcome<Integer>> outcomes;
+        try (DeadlineScope<Integer> scope = new DeadlineScope<>(Duration.ZERO)) {
+            for (int i = 0; i < tasks; i++) {
+                int id = i;
+                scope.fork("task" + i, () -> {
+                    done.countDown();
+                    return id;
+                });
+            }
+            done.await();
+            // Tasks record their result right after counting down, give the last ones time to do it
+            Thread.sleep(200);
+            // Every deadline has passed when join starts, but every task already has its result
+            outcomes = scope.join(Duration.ZERO);
+        }
+
+        assertThat(outcomes).hasSize(tasks)
+                .allSatisfy(outcome -> assertThat(outcome.status()).isEqualTo(FileStatus.COMPLETED));
+    }
+
+    @Test
+    void failingTaskFailsTheJoinAndCancelsOthers() {
+        try (DeadlineScope<String> scope = new DeadlineScope<>(Duration.ofSeconds(30))) {
+            scope.fork("slow", () -> {
+                Thread.sleep(60_000);
+                return "slow result";
+            });
+            scope.fork("failing", () -> {
+                throw new IllegalStateException("Broken file");
+            });
+
+            assertThatThrownBy(() -> scope.join(Duration.ofSeconds(30)))
+                    .isInstanceOf(ExecutionException.class)
+                    .hasMessageContaining("failing")
+                    .hasCauseInstanceOf(IllegalStateException.class);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package org.example.hashmapwithparallelprocessingapproach.pipeline;
+
+import org.example.wordcountingcore.dto.SimilarityResult;
+import org.example.wordcountingcore.pipeline.WordCountPipeline;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ByteArrayResource;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.example.wordcountingcore.dto.SimilarityResult.performComparison;
+
+class FileAIndexWordCounterTest {
+
+    @Test
+    void givesTheSameResultAsCountingAllWords() throws IOException {
+        WordCountPipeline pipeline = new WordCountPipeline(64, 4, 3);
+        Map<String, Integer> fileAFreq = pipeline.count(resource("the cat sat on the mat, the cat ran"));
+        ByteArrayResource file = resource("the dog sat on a log while the cat slept on the mat ".repeat(50));
+
+        FileAIndexWordCounter counter = pipeline.count(file, () -> new FileAIndexWordCounter(fileAFreq));
+        SimilarityResult indexed = counter.compareWith("file");
+        SimilarityResult exact = performComparison("file", fileAFreq, pipeline.count(file));
+
+        assertThat(counter.getFrequency()).doesNotContainKeys("dog", "log", "while", "slept");
+        assertThat(counter.getTotalCount()).isEqualTo(13 * 50);
+        assertThat(indexed.getIntersectionCount()).isEqualTo(exact.getIntersectionCount());
+        assertThat(indexed.getTotalCount()).isEqualTo(exact.getTotalCount());
+        assertThat(indexed.getSimilarityScore()).isEqualTo(exact.getSimilarityScore());
+    }
+
+    private static ByteArrayResource resource(String text) {
+        return new ByteArrayResource(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
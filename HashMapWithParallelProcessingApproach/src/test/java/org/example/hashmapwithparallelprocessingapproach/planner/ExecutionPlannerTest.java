@@ -0,0 +1,93 @@
+package org.example.hashmapwithparallelprocessingapproach.planner;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.Resource;
+
+import java.io.InputStream;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ExecutionPlannerTest {
+
+    private static final long MB = 1 << 20;
+
+    /**
+     * Same throughput for every strategy, unless a test is about it
+     * */
+    private static final StrategyThroughput THROUGHPUT = new StrategyThroughput(10_000, 10_000, 10_000);
+
+    private final ExecutionPlanner planner = new ExecutionPlanner(0.5, 8 * MB);
+
+    @Test
+    void spillEntriesFitTheBudgetOfTheFile() {
+        Resource[] pool = {sized("a", 100 * MB), sized("b", 100 * MB), sized("c", 100 * MB), sized("d", 100 * MB)};
+        long freeHeap = 20 * MB;
+        long fileBudget = (long) (freeHeap * 0.5) / pool.length;
+
+        List<FilePlan> plans = planner.plan(pool, MB, 50_000, THROUGHPUT, 1_000_000, 8, freeHeap);
+
+        for (FilePlan plan : plans) {
+            assertThat(plan.strategy()).isEqualTo(ExecutionStrategy.SPILL_TO_DISK);
+            assertThat(plan.spillEntries()).isLessThan(1_000_000);
+            assertThat(plan.estimatedMemoryBytes()).isLessThanOrEqualTo(fileBudget);
+        }
+    }
+
+    @Test
+    void spillEntriesAreCappedByTheConfiguredEntries() {
+        List<FilePlan> plans = planner.plan(new Resource[]{sized("a", 100 * MB)}, 10 * MB, 2_000_000, THROUGHPUT, 1_000_000, 1, 300 * MB);
+
+        assertThat(plans.getFirst().strategy()).isEqualTo(ExecutionStrategy.SPILL_TO_DISK);
+        assertThat(plans.getFirst().spillEntries()).isEqualTo(1_000_000);
+    }
+
+    @Test
+    void strategiesThatDontSpillHaveNoSpillEntries() {
+        List<FilePlan> plans = planner.plan(new Resource[]{sized("a", 64 * MB), sized("b", MB)}, MB, 10_000, THROUGHPUT, 1_000_000, 8, 4096 * MB);
+
+        assertThat(plans).extracting(FilePlan::strategy)
+                .containsExactly(ExecutionStrategy.PARALLEL_SPLIT, ExecutionStrategy.SEQUENTIAL);
+        assertThat(plans).extracting(FilePlan::spillEntries).containsOnly(0);
+    }
+
+    @Test
+    void timeIsEstimatedFromTheThroughputOfTheStrategy() {
+        StrategyThroughput throughput = new StrategyThroughput(5_000, 8_000, 2_000);
+
+        List<FilePlan> inMemory = planner.plan(new Resource[]{sized("a", 4 * MB)}, MB, 10_000, throughput, 1_000_000, 4, 4096 * MB);
+        assertThat(inMemory.getFirst().strategy()).isEqualTo(ExecutionStrategy.SEQUENTIAL);
+        assertThat(inMemory.getFirst().estimatedMillis()).isEqualTo(4 * MB / 5_000);
+
+        // 4 files on 4 cores, one worker each, their vocabularies and File A index are too big for the heap so they spill
+        Resource[] pool = {sized("a", 100 * MB), sized("b", 100 * MB), sized("c", 100 * MB), sized("d", 100 * MB)};
+        List<FilePlan> spilled = planner.plan(pool, MB, 50_000, throughput, 1_000_000, 4, 20 * MB);
+        assertThat(spilled).extracting(FilePlan::strategy).containsOnly(ExecutionStrategy.SPILL_TO_DISK);
+        assertThat(spilled).extracting(FilePlan::estimatedMillis).containsOnly(100 * MB / 2_000);
+    }
+
+    private static Resource sized(String filename, long size) {
+        return new AbstractResource() {
+            @Override
+            public String getFilename() {
+                return filename;
+            }
+
+            @Override
+            public String getDescription() {
+                return filename;
+            }
+
+            @Override
+            public long contentLength() {
+                return size;
+            }
+
+            @Override
+            public InputStream getInputStream() {
+                throw new UnsupportedOperationException("Planner doesn't read files");
+            }
+        };
+    }
+}
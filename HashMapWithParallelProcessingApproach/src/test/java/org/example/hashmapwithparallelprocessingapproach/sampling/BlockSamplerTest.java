@@ -0,0 +1,169 @@
+package org.example.hashmapwithparallelprocessingapproach.sampling;
+
+import org.example.wordcountingcore.dto.ApproximateSimilarityResult;
+import org.example.wordcountingcore.dto.SimilarityResult;
+import org.example.wordcountingcore.pipeline.WordCountPipeline;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.ByteArrayResource;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.example.wordcountingcore.dto.SimilarityResult.performComparison;
+
+class BlockSamplerTest {
+
+    private static final String[] WORDS = {"the", "cat", "sat", "on", "mat", "café", "naïve", "привет", "日本語", "σοφια", "dog", "log"};
+
+    /**
+     * Samples of the same file with different block orders, for the tests of the interval coverage
+     * */
+    private static final int SAMPLES = 100;
+
+    @TempDir
+    Path directory;
+
+    private final WordCountPipeline pipeline = new WordCountPipeline(4096, 8, 1);
+
+    @Test
+    void samplingEveryBlockGivesTheExactScore() throws IOException {
+        Map<String, Integer> fileAFreq = count(text(5_000, 8, 1));
+        // The vocabulary of the file has words that are not in File A, and its size is not a multiple of the block size
+        byte[] file = text(20_000, WORDS.length, 2);
+        SimilarityResult exact = performComparison("file", fileAFreq, count(file));
+
+        try (BlockSampler sampler = sampler(file, 997, fileAFreq)) {
+            assertThat(sampler.getBlockCount()).isEqualTo(file.length / 997 + 1);
+            sampler.sample(Integer.MAX_VALUE, farDeadline());
+            assertThat(sampler.isExhausted()).isTrue();
+
+            ApproximateSimilarityResult estimate = sampler.estimate();
+            assertThat(estimate.getIntersectionCount()).isEqualTo(exact.getIntersectionCount());
+            assertThat(estimate.getTotalCount()).isEqualTo(exact.getTotalCount());
+            assertThat(estimate.getSimilarityScore()).isCloseTo(exact.getSimilarityScore(), within(1e-9));
+            assertThat(estimate.getIntersectionLowerBound()).isEqualTo(exact.getIntersectionCount());
+            assertThat(estimate.getIntersectionUpperBound()).isEqualTo(exact.getIntersectionCount());
+            assertThat(estimate.getUnionLowerBound()).isEqualTo(exact.getTotalCount());
+            assertThat(estimate.getUnionUpperBound()).isEqualTo(exact.getTotalCount());
+            assertThat(estimate.getScoreUpperBound() - estimate.getScoreLowerBound()).isLessThan(1e-9);
+        }
+    }
+
+    @Test
+    void partialSampleIntervalsHoldTheExactScore() throws IOException {
+        Map<String, Integer> fileAFreq = count(text(5_000, 8, 3));
+        byte[] file = text(50_000, WORDS.length, 4);
+        SimilarityResult exact = performComparison("file", fileAFreq, count(file));
+        Path path = write(file);
+
+        // 95% intervals, so a few samples may miss
+        int covered = 0;
+        for (long seed = 0; seed < SAMPLES; seed++) {
+            try (BlockSampler sampler = sampler(path, 1024, fileAFreq, seed)) {
+                sampler.sample(sampler.getBlockCount() / 4, farDeadline());
+                assertThat(sampler.isExhausted()).isFalse();
+
+                ApproximateSimilarityResult estimate = sampler.estimate();
+                assertThat(estimate.getSimilarityScore()).isCloseTo(exact.getSimilarityScore(), within(5.0));
+                if (estimate.getScoreLowerBound() <= exact.getSimilarityScore()
+                        && exact.getSimilarityScore() <= estimate.getScoreUpperBound()) {
+                    covered++;
+                }
+            }
+        }
+        assertThat(covered).isGreaterThanOrEqualTo(SAMPLES * 9 / 10);
+    }
+
+    @Test
+    void copyOfFileACanReachAFullScore() throws IOException {
+        byte[] fileA = text(50_000, 8, 5);
+        Map<String, Integer> fileAFreq = count(fileA);
+        Path path = write(fileA);
+
+        int reached = 0;
+        for (long seed = 0; seed < SAMPLES; seed++) {
+            try (BlockSampler sampler = sampler(path, 1024, fileAFreq, seed)) {
+                sampler.sample(sampler.getBlockCount() / 4, farDeadline());
+
+                ApproximateSimilarityResult estimate = sampler.estimate();
+                assertThat(estimate.getScoreLowerBound()).isLessThan(100.0);
+                if (estimate.getScoreUpperBound() == 100.0) {
+                    reached++;
+                }
+            }
+        }
+        assertThat(reached).isGreaterThanOrEqualTo(SAMPLES * 9 / 10);
+    }
+
+    @Test
+    void fileSmallerThanABlockIsReadAtOnce() throws IOException {
+        Map<String, Integer> fileAFreq = count("the cat sat on the mat".getBytes(StandardCharsets.UTF_8));
+        byte[] file = "the cat sat on a log".getBytes(StandardCharsets.UTF_8);
+
+        try (BlockSampler sampler = sampler(file, 4096, fileAFreq)) {
+            ApproximateSimilarityResult unknown = sampler.estimate();
+            assertThat(unknown.getScoreLowerBound()).isEqualTo(0.0);
+            assertThat(unknown.getScoreUpperBound()).isEqualTo(100.0);
+
+            assertThat(sampler.sample(10, farDeadline())).isEqualTo(1);
+            ApproximateSimilarityResult estimate = sampler.estimate();
+            // the, cat, sat, on are shared, Union = 6 + 6 - 4
+            assertThat(estimate.getIntersectionCount()).isEqualTo(4);
+            assertThat(estimate.getTotalCount()).isEqualTo(8);
+            assertThat(estimate.getSimilarityScore()).isEqualTo(50.0);
+            assertThat(estimate.getScoreLowerBound()).isEqualTo(50.0);
+            assertThat(estimate.getScoreUpperBound()).isEqualTo(50.0);
+        }
+    }
+
+    @Test
+    void upperNormalQuantileMatchesTheNormalTable() {
+        assertThat(BlockSampler.upperNormalQuantile(0.5)).isCloseTo(0.0, within(1e-12));
+        assertThat(BlockSampler.upperNormalQuantile(0.05)).isCloseTo(1.6448536269514722, within(1e-8));
+        assertThat(BlockSampler.upperNormalQuantile(0.025)).isCloseTo(1.959963984540054, within(1e-8));
+        assertThat(BlockSampler.upperNormalQuantile(1e-6)).isCloseTo(4.753424308822899, within(1e-8));
+        assertThat(BlockSampler.upperNormalQuantile(1e-10)).isCloseTo(6.361340902404056, within(1e-8));
+    }
+
+    private BlockSampler sampler(byte[] file, int blockSize, Map<String, Integer> fileAFreq) throws IOException {
+        return sampler(write(file), blockSize, fileAFreq, 0);
+    }
+
+    private static BlockSampler sampler(Path path, int blockSize, Map<String, Integer> fileAFreq, long seed) throws IOException {
+        return new BlockSampler("file", path, blockSize, FileAVocabulary.of(fileAFreq), new SplittableRandom(seed));
+    }
+
+    private Path write(byte[] file) throws IOException {
+        return Files.write(directory.resolve("file.txt"), file);
+    }
+
+    private Map<String, Integer> count(byte[] text) throws IOException {
+        return new HashMap<>(pipeline.count(new ByteArrayResource(text)));
+    }
+
+    private static long farDeadline() {
+        return System.nanoTime() + TimeUnit.HOURS.toNanos(1);
+    }
+
+    /**
+     * Random words among the first vocabulary words of WORDS
+     * */
+    private static byte[] text(int words, int vocabulary, long seed) {
+        Random random = new Random(seed);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            text.append(WORDS[random.nextInt(vocabulary)]).append(i % 13 == 0 ? '\n' : ' ');
+        }
+        return text.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,65 @@
+package org.example.wordcountingcore.dto;
+
+/**
+ * Similarity Result computed from approximate counts
+ * Besides the estimated counts and score, it holds the range where the exact values are
+ * */
+public class ApproximateSimilarityResult extends SimilarityResult {
+    private final long intersectionLowerBound;
+    private final long intersectionUpperBound;
+    private final long unionLowerBound;
+    private final long unionUpperBound;
+    private final double scoreLowerBound;
+    private final double scoreUpperBound;
+
+
+    public ApproximateSimilarityResult(String filename, long totalCount, long intersectionCount, double similarityScore,
+                                       long intersectionLowerBound, long intersectionUpperBound,
+                                       long unionLowerBound, long unionUpperBound) {
+        this(filename, totalCount, intersectionCount, similarityScore,
+                intersectionLowerBound, intersectionUpperBound, unionLowerBound, unionUpperBound,
+                unionUpperBound == 0 ? 0.0 : ((double) intersectionLowerBound / unionUpperBound) * 100.0,
+                unionLowerBound == 0 ? 0.0 : Math.min(100.0, ((double) intersectionUpperBound / unionLowerBound) * 100.0));
+    }
+
+    /**
+     * With score bounds given by the caller, for estimators whose score interval is tighter than
+     * the one derived from the intersection and union bounds
+     * */
+    public ApproximateSimilarityResult(String filename, long totalCount, long intersectionCount, double similarityScore,
+                                       long intersectionLowerBound, long intersectionUpperBound,
+                                       long unionLowerBound, long unionUpperBound,
+                                       double scoreLowerBound, double scoreUpperBound) {
+        super(filename, totalCount, intersectionCount, similarityScore);
+        this.intersectionLowerBound = intersectionLowerBound;
+        this.intersectionUpperBound = intersectionUpperBound;
+        this.unionLowerBound = unionLowerBound;
+        this.unionUpperBound = unionUpperBound;
+        this.scoreLowerBound = scoreLowerBound;
+        this.scoreUpperBound = scoreUpperBound;
+    }
+
+    public long getIntersectionLowerBound() {
+        return intersectionLowerBound;
+    }
+
+    public long getIntersectionUpperBound() {
+        return intersectionUpperBound;
+    }
+
+    public long getUnionLowerBound() {
+        return unionLowerBound;
+    }
+
+    public long getUnionUpperBound() {
+        return unionUpperBound;
+    }
+
+    public double getScoreLowerBound() {
+        return scoreLowerBound;
+    }
+
+    public double getScoreUpperBound() {
+        return scoreUpperBound;
+    }
+}
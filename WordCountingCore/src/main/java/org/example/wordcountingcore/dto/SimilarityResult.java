@@ -1,4 +1,4 @@
-package org.example.springbatchwith1chuckperfile.dto;
+package org.example.wordcountingcore.dto;
 
 import java.util.Map;
 
@@ -31,13 +31,30 @@ public class SimilarityResult {
         return similarityScore;
     }
 
+    /**
+     * Weighted Jaccard of the word counts of A and B, over the words of both files (a missing word counts 0):
+     * Intersection = sum of min(a, b), Union = sum of max(a, b)
+     * */
     public static SimilarityResult performComparison(String filename, Map<String, Integer> mapA, Map<String, Integer> mapB) {
         long intersectionCount = 0;
-        long unionCount = 0;
-        for(String key : mapA.keySet()){
-            intersectionCount += Math.min(mapA.getOrDefault(key, 0), mapB.getOrDefault(key,0));
-            unionCount += Math.max(mapA.getOrDefault(key, 0), mapB.getOrDefault(key,0));
+        long totalA = 0;
+        for(Map.Entry<String, Integer> entry : mapA.entrySet()){
+            intersectionCount += Math.min(entry.getValue(), mapB.getOrDefault(entry.getKey(), 0));
+            totalA += entry.getValue();
         }
+        long totalB = 0;
+        for(int count : mapB.values()){
+            totalB += count;
+        }
+        return fromCounts(filename, intersectionCount, totalA, totalB);
+    }
+
+    /**
+     * Same result as performComparison, for counters that only know the intersection and the total of each file
+     * Union = sum of max(a, b) = total of A + total of B - Intersection
+     * */
+    public static SimilarityResult fromCounts(String filename, long intersectionCount, long totalA, long totalB) {
+        long unionCount = totalA + totalB - intersectionCount;
         double score = unionCount == 0 ? 0.0 : ((double) intersectionCount / unionCount) * 100.0;
         return new SimilarityResult(filename, unionCount, intersectionCount, score);
     }
@@ -0,0 +1,135 @@
+package org.example.wordcountingcore.ngram;
+
+/**
+ * Open addressing map from long keys to int counts, with no boxing and no node per entry
+ * Keys and counts are kept in two parallel arrays, collisions are resolved by linear probing
+ * Key 0 marks an empty slot, so its count is kept aside
+ * Memory is 12 bytes per slot, with at most 50% of the slots used
+ * */
+public class LongIntHashMap {
+
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+    private boolean hasZeroKey;
+    private int zeroValue;
+
+    public LongIntHashMap() {
+        this(MIN_CAPACITY);
+    }
+
+    public LongIntHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(MIN_CAPACITY, expectedSize) * 2 - 1) << 1;
+        allocate(capacity);
+    }
+
+    /**
+     * Add count to the key, inserting it if missing
+     * */
+    public void add(long key, int count) {
+        if (key == 0) {
+            if (!hasZeroKey) {
+                hasZeroKey = true;
+                size++;
+            }
+            zeroValue += count;
+            return;
+        }
+        int slot = slot(key);
+        while (keys[slot] != 0) {
+            if (keys[slot] == key) {
+                values[slot] += count;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = count;
+        if (++size > (mask + 1) >> 1) {
+            allocate((mask + 1) << 1);
+        }
+    }
+
+    public void increment(long key) {
+        add(key, 1);
+    }
+
+    /**
+     * @return count of the key, or 0 if missing
+     * */
+    public int get(long key) {
+        if (key == 0) {
+            return zeroValue;
+        }
+        int slot = slot(key);
+        while (keys[slot] != 0) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void forEach(Consumer consumer) {
+        if (hasZeroKey) {
+            consumer.accept(0, zeroValue);
+        }
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != 0) {
+                consumer.accept(keys[slot], values[slot]);
+            }
+        }
+    }
+
+    /**
+     * Add all counts of other map into this one
+     * */
+    public void addAll(LongIntHashMap other) {
+        other.forEach(this::add);
+    }
+
+    /**
+     * Keys are already well mixed hashes, so the low bits are used directly
+     * */
+    private int slot(long key) {
+        return (int) (key ^ (key >>> 32)) & mask;
+    }
+
+    /**
+     * Move all entries into new arrays of the given capacity
+     * */
+    private void allocate(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+        if (oldKeys == null) {
+            return;
+        }
+        for (int i = 0; i < oldKeys.length; i++) {
+            long key = oldKeys[i];
+            if (key != 0) {
+                int slot = slot(key);
+                while (keys[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = key;
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    @FunctionalInterface
+    public interface Consumer {
+        void accept(long key, int count);
+    }
+}
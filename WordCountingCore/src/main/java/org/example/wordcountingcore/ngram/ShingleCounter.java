@@ -0,0 +1,240 @@
+package org.example.wordcountingcore.ngram;
+
+import org.example.wordcountingcore.dto.SimilarityResult;
+import org.example.wordcountingcore.pipeline.WordCounter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.example.wordcountingcore.dto.SimilarityResult.fromCounts;
+
+/**
+ * Counts word n-grams (shingles), so copied passages score higher than the same words reordered
+ * Each word is hashed straight from the pipeline buffer, then the hash of the last n words is updated as a rolling hash:
+ * H = w[i-n+1] * B^(n-1) + ... + w[i-1] * B + w[i], so the oldest word is removed and the new one added in O(1)
+ * Shingles are counted by their 64-bit hash in a LongIntHashMap, no String is built for a word or a shingle
+ * Chunks of the file reach the workers in any order, so shingles are counted inside each chunk,
+ * and the first and last n-1 word hashes of each chunk are kept to count the shingles crossing chunks once all are merged
+ * A file with fewer than n words has one shingle made of all its words
+ * */
+public class ShingleCounter implements WordCounter<ShingleCounter> {
+
+    /**
+     * Odd multiplier of the rolling hash, arithmetic is modulo 2^64
+     * */
+    private static final long BASE = 0x9e3779b97f4a7c15L;
+
+    /**
+     * First and last n-1 word hashes of a chunk (or all of them if fewer), in file order
+     * */
+    private record ChunkEdges(long[] head, long[] tail, long words) {
+    }
+
+    private final int n;
+    private final long oldestFactor;
+    private final long[] window;
+    private final LongIntHashMap shingles = new LongIntHashMap();
+    private long totalShingles;
+
+    /**
+     * Edges of every counted chunk by sequence, until they are stitched
+     * */
+    private final Map<Long, ChunkEdges> edges = new TreeMap<>();
+    private boolean chunkOpen;
+    private long chunkSequence;
+    private long[] head;
+    private int headSize;
+    private int windowHead;
+    private long seen;
+    private long rollingHash;
+
+    public ShingleCounter(int n) {
+        if (n <= 0) {
+            throw new IllegalArgumentException("N-gram size must be positive");
+        }
+        this.n = n;
+        this.window = new long[n];
+        long factor = 1;
+        for (int i = 1; i < n; i++) {
+            factor *= BASE;
+        }
+        this.oldestFactor = factor;
+    }
+
+    @Override
+    public void startChunk(long sequence) {
+        chunkOpen = true;
+        chunkSequence = sequence;
+        head = new long[n - 1];
+        headSize = 0;
+        windowHead = 0;
+        seen = 0;
+        rollingHash = 0;
+    }
+
+    @Override
+    public void endChunk() {
+        int tailSize = (int) Math.min(n - 1, seen);
+        long[] tail = new long[tailSize];
+        for (int i = 0; i < tailSize; i++) {
+            tail[i] = window[Math.floorMod(windowHead - tailSize + i, n)];
+        }
+        long[] chunkHead = headSize == head.length ? head : Arrays.copyOf(head, headSize);
+        edges.put(chunkSequence, new ChunkEdges(chunkHead, tail, seen));
+        chunkOpen = false;
+    }
+
+    @Override
+    public void add(String word) {
+        byte[] bytes = word.getBytes(StandardCharsets.UTF_8);
+        add(bytes, 0, bytes.length);
+    }
+
+    @Override
+    public void add(byte[] bytes, int start, int length) {
+        // Words added without the pipeline are one chunk
+        if (!chunkOpen) {
+            startChunk(edges.size());
+        }
+        long wordHash = hash(bytes, start, length);
+        if (seen >= n) {
+            rollingHash -= window[windowHead] * oldestFactor;
+        }
+        rollingHash = rollingHash * BASE + wordHash;
+        window[windowHead] = wordHash;
+        if (++windowHead == n) {
+            windowHead = 0;
+        }
+        if (headSize < head.length) {
+            head[headSize++] = wordHash;
+        }
+        if (++seen >= n) {
+            increment(rollingHash);
+        }
+    }
+
+    /**
+     * Counts are summed, shingles crossing chunks are counted from the edges once both counters are merged
+     * */
+    @Override
+    public ShingleCounter merge(ShingleCounter other) {
+        ShingleCounter bigger = shingles.size() >= other.shingles.size() ? this : other;
+        ShingleCounter smaller = bigger == this ? other : this;
+        bigger.shingles.addAll(smaller.shingles);
+        bigger.totalShingles += smaller.totalShingles;
+        bigger.edges.putAll(smaller.edges);
+        return bigger;
+    }
+
+    /**
+     * Same scoring as SimilarityResult.performComparison, over shingles
+     * Intersection is summed over the shingles of File A, Union = shingles of A + shingles of this file - intersection
+     * */
+    public SimilarityResult compareWith(String filename, ShingleCounter fileA) {
+        stitch();
+        fileA.stitch();
+        long[] intersectionCount = new long[1];
+        fileA.shingles.forEach((shingle, countA) -> intersectionCount[0] += Math.min(countA, shingles.get(shingle)));
+        return fromCounts(filename, intersectionCount[0], fileA.totalShingles, totalShingles);
+    }
+
+    public int getUniqueShingles() {
+        stitch();
+        return shingles.size();
+    }
+
+    public long getTotalShingles() {
+        stitch();
+        return totalShingles;
+    }
+
+    /**
+     * Walk the chunks in file order, with the last n-1 words before the chunk (carry),
+     * and count every shingle that starts in the carry and ends in the head of the chunk
+     * Runs once, File A is stitched by the first comparison, so it is synchronized
+     * */
+    private synchronized void stitch() {
+        if (chunkOpen) {
+            endChunk();
+        }
+        if (edges.isEmpty()) {
+            return;
+        }
+        long[] carry = new long[n - 1];
+        int carried = 0;
+        long words = 0;
+        for (ChunkEdges chunk : edges.values()) {
+            long[] chunkHead = chunk.head();
+            for (int end = 0; end < chunkHead.length; end++) {
+                // Shingle of the last n-1-end carried words and the first end+1 words of the chunk
+                int fromCarry = n - 1 - end;
+                if (fromCarry > carried) {
+                    continue;
+                }
+                long shingle = 0;
+                for (int i = carried - fromCarry; i < carried; i++) {
+                    shingle = shingle * BASE + carry[i];
+                }
+                for (int i = 0; i <= end; i++) {
+                    shingle = shingle * BASE + chunkHead[i];
+                }
+                increment(shingle);
+            }
+            words += chunk.words();
+            carried = shift(carry, carried, chunk.words() >= n - 1 ? chunk.tail() : chunkHead);
+        }
+        if (words > 0 && words < n) {
+            long shingle = 0;
+            for (int i = 0; i < carried; i++) {
+                shingle = shingle * BASE + carry[i];
+            }
+            increment(shingle);
+        }
+        edges.clear();
+    }
+
+    /**
+     * Append words to the carry, keeping its last n-1 words
+     * @return number of carried words
+     * */
+    private static int shift(long[] carry, int carried, long[] words) {
+        if (words.length >= carry.length) {
+            System.arraycopy(words, words.length - carry.length, carry, 0, carry.length);
+            return carry.length;
+        }
+        int keep = Math.min(carried, carry.length - words.length);
+        System.arraycopy(carry, carried - keep, carry, 0, keep);
+        System.arraycopy(words, 0, carry, keep, words.length);
+        return keep + words.length;
+    }
+
+    private void increment(long shingle) {
+        shingles.increment(mix(shingle));
+        totalShingles++;
+    }
+
+    /**
+     * 64-bit FNV-1a over the bytes of the word
+     * */
+    private static long hash(byte[] bytes, int start, int length) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = start; i < start + length; i++) {
+            hash = (hash ^ (bytes[i] & 0xff)) * 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * Final avalanche, so the low bits used by the table depend on all words of the shingle
+     * */
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,47 @@
+package org.example.wordcountingcore.pipeline;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Fixed set of reusable byte buffers shared by every read of the pipeline
+ * Buffers are allocated once, so the memory used for I/O never grows with the input size
+ * When all buffers are in use, readers block until a worker releases one (backpressure)
+ * */
+public class BufferPool {
+
+    private final int bufferSize;
+    private final BlockingQueue<byte[]> freeBuffers;
+
+    public BufferPool(int bufferSize, int bufferCount) {
+        if (bufferSize <= 0 || bufferCount <= 0) {
+            throw new IllegalArgumentException("Buffer size and count must be positive");
+        }
+        this.bufferSize = bufferSize;
+        this.freeBuffers = new ArrayBlockingQueue<>(bufferCount);
+        for (int i = 0; i < bufferCount; i++) {
+            freeBuffers.add(new byte[bufferSize]);
+        }
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * Take a free buffer, waiting if all buffers are currently in flight
+     * */
+    public byte[] acquire() throws InterruptedException {
+        return freeBuffers.take();
+    }
+
+    /**
+     * Give a buffer back to the pool, so the reader can fill it again
+     * Larger buffers (read for a word longer than a pooled buffer) are not pooled, and left to the GC
+     * */
+    public void release(byte[] buffer) {
+        if (buffer.length == bufferSize) {
+            freeBuffers.add(buffer);
+        }
+    }
+}
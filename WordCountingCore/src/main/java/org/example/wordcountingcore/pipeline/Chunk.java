@@ -0,0 +1,14 @@
+package org.example.wordcountingcore.pipeline;
+
+/**
+ * Slot of the ring buffer between the reader and the counters
+ * Holds a pooled buffer (or a larger one, for a word longer than the buffer), how many bytes of it are valid, and the position of the chunk in the resource
+ * Valid bytes always end on a word boundary, so no word is split between two chunks
+ * */
+record Chunk(byte[] bytes, int length, long sequence) {
+
+    /**
+     * Marker sent once per counter to tell it the file has been fully read
+     * */
+    static final Chunk END = new Chunk(new byte[0], 0, -1);
+}
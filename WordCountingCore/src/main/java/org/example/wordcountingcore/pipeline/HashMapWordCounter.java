@@ -0,0 +1,31 @@
+package org.example.wordcountingcore.pipeline;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Exact counting, a HashMap of word to its frequency
+ * Memory grows with the number of unique words
+ * */
+public class HashMapWordCounter implements WordCounter<HashMapWordCounter> {
+
+    private final Map<String, Integer> frequency = new HashMap<>();
+
+    public Map<String, Integer> getFrequency() {
+        return frequency;
+    }
+
+    @Override
+    public void add(String word) {
+        frequency.merge(word, 1, Integer::sum);
+    }
+
+    @Override
+    public HashMapWordCounter merge(HashMapWordCounter other) {
+        // Merge into the bigger map, to move the least entries
+        HashMapWordCounter bigger = frequency.size() >= other.frequency.size() ? this : other;
+        HashMapWordCounter smaller = bigger == this ? other : this;
+        smaller.frequency.forEach((word, count) -> bigger.frequency.merge(word, count, Integer::sum));
+        return bigger;
+    }
+}
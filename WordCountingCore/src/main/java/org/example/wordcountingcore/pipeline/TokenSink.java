@@ -0,0 +1,19 @@
+package org.example.wordcountingcore.pipeline;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Receives the words found by Utf8Tokenizer, in the order they appear
+ * */
+public interface TokenSink {
+
+    void add(String word);
+
+    /**
+     * Add a word straight from a pipeline buffer, bytes are only valid during the call
+     * Sinks that don't need a String (like shingle hashing) override it to avoid the allocation
+     * */
+    default void add(byte[] bytes, int start, int length) {
+        add(new String(bytes, start, length, StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,305 @@
+package org.example.wordcountingcore.pipeline;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Splits UTF-8 bytes into lower case words, without decoding them to Strings
+ * Same tokens as splitting on Unicode \W+ (word characters are letters, marks, digits and connectors like _),
+ * and keeping only words made of letters (with their marks), like [a-zA-Z]+ but for every script
+ * - ASCII bytes go through a 128 entries table (class + lower case byte)
+ * - Multibyte sequences are decoded inline, then classified and lower cased with two-level tables of the BMP:
+ *   blocks of 128 code points, identical blocks are stored once (most of the BMP shares a few blocks)
+ * - Code points above the BMP (rare) fall back to Character
+ * Lower case is the simple one to one mapping of Character.toLowerCase (no ß -> ss)
+ * Malformed bytes are separators
+ * Each worker needs its own tokenizer, as the lower cased word is written in its scratch buffer
+ * */
+public final class Utf8Tokenizer {
+
+    private static final byte WORD = 1;
+    private static final byte LETTER = 2;
+
+    private static final int BLOCK_BITS = 7;
+    private static final int BLOCK_SIZE = 1 << BLOCK_BITS;
+    private static final int BLOCK_MASK = BLOCK_SIZE - 1;
+
+    private static final byte[] ASCII_CLASS = new byte[128];
+    private static final byte[] ASCII_LOWER = new byte[128];
+
+    /**
+     * Offset of the block of each 128 code points, in the shared blocks array
+     * */
+    private static final int[] CLASS_OFFSETS = new int[0x10000 >> BLOCK_BITS];
+    private static final char[] CLASS_BLOCKS;
+
+    /**
+     * Lower case is stored as a delta modulo 2^16: lower = (codePoint + delta) & 0xFFFF
+     * So every block without upper case letters is the same block of zeros
+     * */
+    private static final int[] LOWER_OFFSETS = new int[0x10000 >> BLOCK_BITS];
+    private static final char[] LOWER_BLOCKS;
+
+    static {
+        char[] classes = new char[0x10000];
+        char[] lowers = new char[0x10000];
+        for (int codePoint = 0; codePoint < 0x10000; codePoint++) {
+            classes[codePoint] = (char) classify(codePoint);
+            lowers[codePoint] = (char) (Character.toLowerCase(codePoint) - codePoint);
+        }
+        for (int c = 0; c < 128; c++) {
+            ASCII_CLASS[c] = (byte) classes[c];
+            ASCII_LOWER[c] = (byte) (c + lowers[c]);
+        }
+        CLASS_BLOCKS = compact(classes, CLASS_OFFSETS);
+        LOWER_BLOCKS = compact(lowers, LOWER_OFFSETS);
+    }
+
+    /**
+     * Lower cased word being built, at most 1.5 times the input (a 2 bytes letter may lower case to 3 bytes)
+     * */
+    private byte[] word = new byte[0];
+
+    /**
+     * Tokenize bytes [0, length), and add each word to the sink
+     * Bytes passed to the sink are only valid during the call
+     * */
+    public void tokenize(byte[] bytes, int length, TokenSink sink) {
+        tokenize(bytes, 0, length, sink);
+    }
+
+    /**
+     * Same as tokenize, over bytes [from, to)
+     * */
+    public void tokenize(byte[] bytes, int from, int to, TokenSink sink) {
+        int capacity = (to - from) + ((to - from) >> 1) + 4;
+        if (word.length < capacity) {
+            word = new byte[capacity];
+        }
+        byte[] word = this.word;
+        int wordLength = 0;
+        boolean onlyLetters = true;
+        int length = to;
+        int i = from;
+        while (i < length) {
+            int b = bytes[i];
+            int type;
+            if (b >= 0) {
+                // ASCII fast path
+                type = ASCII_CLASS[b];
+                if (type != 0) {
+                    word[wordLength++] = ASCII_LOWER[b];
+                }
+                i++;
+            } else {
+                int codePoint = decode(bytes, i, length);
+                if (codePoint < 0) {
+                    type = 0;
+                    i++;
+                } else {
+                    type = classOf(codePoint);
+                    if (type != 0) {
+                        wordLength = encode(toLowerCase(codePoint), word, wordLength);
+                    }
+                    i += utf8Length(codePoint);
+                }
+            }
+
+            if (type == 0) {
+                if (wordLength > 0 && onlyLetters) {
+                    sink.add(word, 0, wordLength);
+                }
+                wordLength = 0;
+                onlyLetters = true;
+            } else if ((type & LETTER) == 0) {
+                onlyLetters = false;
+            }
+        }
+        if (wordLength > 0 && onlyLetters) {
+            sink.add(word, 0, wordLength);
+        }
+    }
+
+    /**
+     * Index right after the last separator, so a chunk can be cut there without splitting a word or a character
+     * @return 0 if there is no separator, the buffer then holds the start of a single word
+     * */
+    public static int lastBoundary(byte[] bytes, int length) {
+        for (int i = length - 1; i >= 0; i--) {
+            int b = bytes[i];
+            if (b >= 0) {
+                if (ASCII_CLASS[b] == 0) {
+                    return i + 1;
+                }
+            } else if ((b & 0xC0) != 0x80) {
+                int sequenceLength = sequenceLength(b & 0xFF);
+                if (i + sequenceLength > length) {
+                    // Character not fully in the buffer yet
+                    continue;
+                }
+                int codePoint = decode(bytes, i, length);
+                if (codePoint < 0) {
+                    return i + 1;
+                }
+                if (classOf(codePoint) == 0) {
+                    return i + sequenceLength;
+                }
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * True if the character starting at i is a separator (or a malformed sequence)
+     * */
+    public static boolean isSeparator(byte[] bytes, int i, int length) {
+        int b = bytes[i];
+        if (b >= 0) {
+            return ASCII_CLASS[b] == 0;
+        }
+        int codePoint = decode(bytes, i, length);
+        return codePoint < 0 || classOf(codePoint) == 0;
+    }
+
+    /**
+     * Start of the first separator at or after from, skipping the rest of a character cut at from
+     * @return length if there is no separator
+     * */
+    public static int nextSeparator(byte[] bytes, int from, int length) {
+        int i = from;
+        while (i < length) {
+            int b = bytes[i];
+            if (b >= 0) {
+                if (ASCII_CLASS[b] == 0) {
+                    return i;
+                }
+                i++;
+            } else if ((b & 0xC0) == 0x80) {
+                i++;
+            } else {
+                int codePoint = decode(bytes, i, length);
+                if (codePoint < 0 || classOf(codePoint) == 0) {
+                    return i;
+                }
+                i += utf8Length(codePoint);
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Store each distinct block of the table once, and the offset of every block in offsets
+     * */
+    private static char[] compact(char[] table, int[] offsets) {
+        Map<String, Integer> distinct = new HashMap<>();
+        char[] blocks = new char[table.length];
+        int size = 0;
+        for (int block = 0; block < offsets.length; block++) {
+            String key = new String(table, block << BLOCK_BITS, BLOCK_SIZE);
+            Integer offset = distinct.get(key);
+            if (offset == null) {
+                offset = size;
+                distinct.put(key, offset);
+                System.arraycopy(table, block << BLOCK_BITS, blocks, offset, BLOCK_SIZE);
+                size += BLOCK_SIZE;
+            }
+            offsets[block] = offset;
+        }
+        return Arrays.copyOf(blocks, size);
+    }
+
+    private static int classOf(int codePoint) {
+        if (codePoint < 0x10000) {
+            return CLASS_BLOCKS[CLASS_OFFSETS[codePoint >>> BLOCK_BITS] + (codePoint & BLOCK_MASK)];
+        }
+        return classify(codePoint);
+    }
+
+    private static int toLowerCase(int codePoint) {
+        if (codePoint < 0x10000) {
+            return (codePoint + LOWER_BLOCKS[LOWER_OFFSETS[codePoint >>> BLOCK_BITS] + (codePoint & BLOCK_MASK)]) & 0xFFFF;
+        }
+        return Character.toLowerCase(codePoint);
+    }
+
+    private static byte classify(int codePoint) {
+        return switch (Character.getType(codePoint)) {
+            case Character.UPPERCASE_LETTER, Character.LOWERCASE_LETTER, Character.TITLECASE_LETTER,
+                 Character.MODIFIER_LETTER, Character.OTHER_LETTER,
+                 Character.NON_SPACING_MARK, Character.COMBINING_SPACING_MARK, Character.ENCLOSING_MARK -> WORD | LETTER;
+            case Character.DECIMAL_DIGIT_NUMBER, Character.CONNECTOR_PUNCTUATION -> WORD;
+            default -> 0;
+        };
+    }
+
+    /**
+     * Length of the sequence started by a lead byte, 1 for bytes that can't start a sequence
+     * */
+    private static int sequenceLength(int lead) {
+        if (lead >= 0xC2 && lead <= 0xDF) {
+            return 2;
+        }
+        if (lead >= 0xE0 && lead <= 0xEF) {
+            return 3;
+        }
+        if (lead >= 0xF0 && lead <= 0xF4) {
+            return 4;
+        }
+        return 1;
+    }
+
+    /**
+     * Decode the multibyte sequence at i
+     * @return code point, or -1 if the sequence is malformed, overlong, a surrogate or cut by the end
+     * */
+    private static int decode(byte[] bytes, int i, int length) {
+        int lead = bytes[i] & 0xFF;
+        int sequenceLength = sequenceLength(lead);
+        if (sequenceLength == 1 || i + sequenceLength > length) {
+            return -1;
+        }
+        int codePoint = lead & (0xFF >>> (sequenceLength + 1));
+        for (int k = 1; k < sequenceLength; k++) {
+            int next = bytes[i + k];
+            if ((next & 0xC0) != 0x80) {
+                return -1;
+            }
+            codePoint = (codePoint << 6) | (next & 0x3F);
+        }
+        if (utf8Length(codePoint) != sequenceLength || codePoint > Character.MAX_CODE_POINT
+                || (codePoint >= Character.MIN_SURROGATE && codePoint <= Character.MAX_SURROGATE)) {
+            return -1;
+        }
+        return codePoint;
+    }
+
+    private static int utf8Length(int codePoint) {
+        if (codePoint < 0x80) {
+            return 1;
+        }
+        if (codePoint < 0x800) {
+            return 2;
+        }
+        return codePoint < 0x10000 ? 3 : 4;
+    }
+
+    private static int encode(int codePoint, byte[] out, int position) {
+        if (codePoint < 0x80) {
+            out[position++] = (byte) codePoint;
+        } else if (codePoint < 0x800) {
+            out[position++] = (byte) (0xC0 | (codePoint >>> 6));
+            out[position++] = (byte) (0x80 | (codePoint & 0x3F));
+        } else if (codePoint < 0x10000) {
+            out[position++] = (byte) (0xE0 | (codePoint >>> 12));
+            out[position++] = (byte) (0x80 | ((codePoint >>> 6) & 0x3F));
+            out[position++] = (byte) (0x80 | (codePoint & 0x3F));
+        } else {
+            out[position++] = (byte) (0xF0 | (codePoint >>> 18));
+            out[position++] = (byte) (0x80 | ((codePoint >>> 12) & 0x3F));
+            out[position++] = (byte) (0x80 | ((codePoint >>> 6) & 0x3F));
+            out[position++] = (byte) (0x80 | (codePoint & 0x3F));
+        }
+        return position;
+    }
+}
@@ -0,0 +1,260 @@
+package org.example.wordcountingcore.pipeline;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * Staged pipeline to count word frequency of any Resource (file, jar entry, URL)
+ * 1. Reader stage fills pooled buffers from the InputStream, and cuts each buffer on the last word boundary
+ * 2. Ring buffer (bounded queue) carries the buffers to the counters, and blocks the reader when they fall behind
+ * 3. Counter stage tokenizes each buffer into its own WordCounter, then all counters are merged at the end
+ * So Disk and CPU are busy at the same time, with fixed memory for buffers (plus the length of any word longer than a buffer)
+ * */
+@Component
+@Slf4j
+public class WordCountPipeline {
+
+    private final BufferPool bufferPool;
+    private final int workers;
+    private final int ringCapacity;
+
+    public WordCountPipeline(@Value("${pipeline.buffer-size}") int bufferSize,
+                             @Value("${pipeline.buffer-count}") int bufferCount,
+                             @Value("${pipeline.workers}") int workers) {
+        this.bufferPool = new BufferPool(bufferSize, bufferCount);
+        // 0 means one counter per core
+        this.workers = workers > 0 ? workers : Runtime.getRuntime().availableProcessors();
+        this.ringCapacity = Math.max(1, bufferCount / 2);
+    }
+
+    /**
+     * Count frequency of each word in the resource
+     * Words are lower cased, for any script (see Utf8Tokenizer)
+     * */
+    public Map<String, Integer> count(Resource resource) throws IOException {
+        return count(resource, HashMapWordCounter::new).getFrequency();
+    }
+
+    /**
+     * Count words of the resource with any WordCounter, one counter per configured worker
+     * @return all worker counters merged into one
+     * */
+    public <T extends WordCounter<T>> T count(Resource resource, Supplier<T> counterFactory) throws IOException {
+        return count(resource, counterFactory, workers);
+    }
+
+    /**
+     * Same as count, with the number of counter workers chosen by the caller
+     * If the calling thread is interrupted (run cancelled), or counting fails, the stream is closed and both stages are stopped
+     * The counters are waited for, then discarded, the reader is not, as a read may ignore interrupts (network mount)
+     * Buffers are given back in every case, by whoever holds them last
+     * */
+    public <T extends WordCounter<T>> T count(Resource resource, Supplier<T> counterFactory, int workers) throws IOException {
+        // Counters are created before any stage starts, so a failing factory can't leave a worker that never drains the ring
+        List<T> workerCounters = new ArrayList<>(workers);
+        for (int i = 0; i < workers; i++) {
+            workerCounters.add(counterFactory.get());
+        }
+        BlockingQueue<Chunk> ring = new ArrayBlockingQueue<>(ringCapacity);
+        ExecutorService executorService = Executors.newVirtualThreadPerTaskExecutor();
+        List<Future<T>> counters = new ArrayList<>(workers);
+        InputStream inputStream = null;
+        boolean counted = false;
+        try {
+            inputStream = resource.getInputStream();
+            for (T workerCounter : workerCounters) {
+                counters.add(executorService.submit(() -> countChunks(ring, workerCounter)));
+            }
+            InputStream stream = inputStream;
+            Future<Void> reader = executorService.submit(() -> readChunks(stream, ring, workers));
+
+            reader.get();
+            T result = counters.getFirst().get();
+            for (Future<T> counter : counters.subList(1, counters.size())) {
+                result = result.merge(counter.get());
+            }
+            counted = true;
+            return result;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (e.getCause() instanceof UncheckedIOException uncheckedIOException) {
+                throw uncheckedIOException.getCause();
+            }
+            throw new RuntimeException("Failed to count words of resource: " + resource.getFilename(), e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Counting interrupted for resource: " + resource.getFilename(), e);
+        } finally {
+            if (counted) {
+                // Every stage is done, nothing to wait for
+                executorService.close();
+            } else {
+                executorService.shutdownNow();
+            }
+            if (inputStream != null) {
+                closeQuietly(inputStream, resource);
+            }
+            if (!counted) {
+                awaitCounters(counters);
+                releaseChunks(ring);
+                for (T workerCounter : workerCounters) {
+                    workerCounter.discard();
+                }
+            }
+        }
+    }
+
+    /**
+     * Reader Stage
+     * Fill a pooled buffer, then hand over everything up to the last word boundary
+     * The bytes after the boundary (start of a word) are carried to the next buffer
+     * A word longer than the buffer is carried whole, and read on into a buffer of its own, twice as large each time
+     * End markers are sent only when the whole stream is read, on failure the counters are stopped by count
+     * and the chunks they will never take are given back
+     * */
+    private Void readChunks(InputStream inputStream, BlockingQueue<Chunk> ring, int workers) throws IOException, InterruptedException {
+        int bufferSize = bufferPool.getBufferSize();
+        byte[] carry = new byte[bufferSize];
+        int carried = 0;
+        long sequence = 0;
+        boolean read = false;
+        try {
+            boolean endOfStream = false;
+            while (!endOfStream) {
+                byte[] buffer = carried < bufferSize ? bufferPool.acquire() : new byte[carried * 2];
+                try {
+                    System.arraycopy(carry, 0, buffer, 0, carried);
+                    int length = carried;
+                    while (length < buffer.length) {
+                        int count = inputStream.read(buffer, length, buffer.length - length);
+                        if (count < 0) {
+                            endOfStream = true;
+                            break;
+                        }
+                        length += count;
+                    }
+                    int cut = endOfStream ? length : Utf8Tokenizer.lastBoundary(buffer, length);
+                    carried = length - cut;
+                    if (carried > carry.length) {
+                        carry = new byte[carried];
+                    }
+                    System.arraycopy(buffer, cut, carry, 0, carried);
+                    if (cut > 0) {
+                        ring.put(new Chunk(buffer, cut, sequence++));
+                        buffer = null;
+                    }
+                } finally {
+                    if (buffer != null) {
+                        bufferPool.release(buffer);
+                    }
+                }
+            }
+            for (int i = 0; i < workers; i++) {
+                ring.put(Chunk.END);
+            }
+            read = true;
+            return null;
+        } finally {
+            if (!read) {
+                // The reader may outlive count (stuck read), so its last chunks are given back here
+                releaseChunks(ring);
+            }
+        }
+    }
+
+    /**
+     * Counter Stage
+     * Take chunks from the ring until the end marker, and count words in the worker's own counter
+     * If counting fails, the worker keeps draining the ring until the end marker, so the reader is never stuck
+     * */
+    private <T extends WordCounter<T>> T countChunks(BlockingQueue<Chunk> ring, T counter) throws InterruptedException {
+        Utf8Tokenizer tokenizer = new Utf8Tokenizer();
+        Throwable failure = null;
+        Chunk chunk;
+        while ((chunk = ring.take()) != Chunk.END) {
+            try {
+                if (failure == null) {
+                    counter.startChunk(chunk.sequence());
+                    tokenizer.tokenize(chunk.bytes(), chunk.length(), counter);
+                    counter.endChunk();
+                }
+            } catch (RuntimeException | Error e) {
+                failure = e;
+            } finally {
+                bufferPool.release(chunk.bytes());
+            }
+        }
+        if (failure instanceof Error error) {
+            throw error;
+        }
+        if (failure != null) {
+            throw (RuntimeException) failure;
+        }
+        return counter;
+    }
+
+    /**
+     * Wait for the counter stage to stop, even if the calling thread is interrupted
+     * Counters stop on interrupt after their current chunk, so this never waits on a read
+     * */
+    private static void awaitCounters(List<? extends Future<?>> counters) {
+        boolean interrupted = false;
+        for (Future<?> counter : counters) {
+            while (true) {
+                try {
+                    counter.get();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException | CancellationException e) {
+                    break;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Give back buffers that were never taken from the ring
+     * */
+    private void releaseChunks(BlockingQueue<Chunk> ring) {
+        Chunk chunk;
+        while ((chunk = ring.poll()) != null) {
+            if (chunk != Chunk.END) {
+                bufferPool.release(chunk.bytes());
+            }
+        }
+    }
+
+    /**
+     * Closing the stream also wakes up a reader blocked in read
+     * */
+    private static void closeQuietly(InputStream inputStream, Resource resource) {
+        try {
+            inputStream.close();
+        } catch (IOException e) {
+            log.warn("Failed to close resource: {}", resource.getFilename(), e);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package org.example.wordcountingcore.pipeline;
+
+/**
+ * Counting state of one pipeline worker, words come from the worker's tokenizer (see TokenSink)
+ * Each worker gets its own counter, then all counters are merged when the file is fully read
+ * */
+public interface WordCounter<T extends WordCounter<T>> extends TokenSink {
+
+    /**
+     * Called by the pipeline before and after the words of each chunk, sequence is the position of the chunk in the resource
+     * Chunks reach the workers in any order, counters that need word order (like ShingleCounter) stitch them back by sequence
+     * */
+    default void startChunk(long sequence) {
+    }
+
+    default void endChunk() {
+    }
+
+    /**
+     * Merge other counter into this one (or this one into other), and return the merged counter
+     * */
+    T merge(T other);
+
+    /**
+     * Release what the counter holds outside the heap (like temp files), called by the pipeline when counting fails
+     * */
+    default void discard() {
+    }
+}
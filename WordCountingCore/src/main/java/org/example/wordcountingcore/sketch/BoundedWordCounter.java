@@ -0,0 +1,81 @@
+package org.example.wordcountingcore.sketch;
+
+import org.example.wordcountingcore.dto.ApproximateSimilarityResult;
+import org.example.wordcountingcore.pipeline.WordCounter;
+
+import java.util.Map;
+
+/**
+ * Memory-capped counting for files with a huge vocabulary
+ * Top-N frequent words are tracked with SpaceSaving, every word is also added to a Count-Min sketch
+ * Memory is fixed by the heavy hitters capacity and the sketch dimensions, not by the input
+ * */
+public class BoundedWordCounter implements WordCounter<BoundedWordCounter> {
+
+    private final SpaceSaving heavyHitters;
+    private final CountMinSketch sketch;
+
+    public BoundedWordCounter(int heavyHitters, int sketchWidth, int sketchDepth) {
+        this.heavyHitters = new SpaceSaving(heavyHitters);
+        this.sketch = new CountMinSketch(sketchWidth, sketchDepth);
+    }
+
+    @Override
+    public void add(String word) {
+        heavyHitters.add(word);
+        sketch.add(CountMinSketch.hash(word));
+    }
+
+    @Override
+    public BoundedWordCounter merge(BoundedWordCounter other) {
+        heavyHitters.merge(other.heavyHitters);
+        sketch.merge(other.sketch);
+        return this;
+    }
+
+    /**
+     * Same comparison as SimilarityResult.performComparison
+     * Intersection is summed over the words of File A, the frequency in this file is taken from:
+     * - Heavy hitters if monitored, exact within its recorded error
+     * - Otherwise Count-Min estimate, capped by the heavy hitters minimum count
+     * Union = total of A + total of this file - intersection, the sketch counts the total of this file exactly
+     * A sketch estimate is within its error bound with probability 1 - e^-depth, for each word on its own
+     * Over the k words of File A taken from the sketch, all bounds hold together with probability at least 1 - k * e^-depth (union bound)
+     * Point estimate is the midpoint of the intersection bounds, the score bounds come from the counts bounds
+     * */
+    public ApproximateSimilarityResult compareWith(String filename, Map<String, Integer> fileAFreq) {
+        long sketchError = sketch.getErrorBound();
+        long unmonitoredMax = heavyHitters.getMinCount();
+        long intersectionLow = 0, intersectionHigh = 0;
+        long totalA = 0;
+        for (Map.Entry<String, Integer> entry : fileAFreq.entrySet()) {
+            long countA = entry.getValue();
+            long low;
+            long high;
+            SpaceSaving.Counter counter = heavyHitters.get(entry.getKey());
+            if (counter != null) {
+                low = counter.count() - counter.error();
+                high = counter.count();
+            } else if (!heavyHitters.isFull()) {
+                // Every word seen so far is monitored, so this word is not in the file
+                low = 0;
+                high = 0;
+            } else {
+                long estimate = sketch.estimate(CountMinSketch.hash(entry.getKey()));
+                high = Math.min(estimate, unmonitoredMax);
+                low = Math.min(high, Math.max(0, estimate - sketchError));
+            }
+            intersectionLow += Math.min(countA, low);
+            intersectionHigh += Math.min(countA, high);
+            totalA += countA;
+        }
+        long total = totalA + sketch.getTotalCount();
+        long unionLow = total - intersectionHigh;
+        long unionHigh = total - intersectionLow;
+        long intersection = (intersectionLow + intersectionHigh) / 2;
+        long union = total - intersection;
+        double score = union == 0 ? 0.0 : ((double) intersection / union) * 100.0;
+        return new ApproximateSimilarityResult(filename, union, intersection, score,
+                intersectionLow, intersectionHigh, unionLow, unionHigh);
+    }
+}
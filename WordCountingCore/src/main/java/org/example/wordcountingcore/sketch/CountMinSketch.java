@@ -0,0 +1,89 @@
+package org.example.wordcountingcore.sketch;
+
+/**
+ * Count-Min sketch: depth rows of width counters, each word increments one counter per row
+ * Estimate of a word is the minimum of its counters, so it never under-counts
+ * Over-count is at most (e / width) * totalCount, with probability 1 - e^-depth
+ * Memory is width * depth ints, no matter how many unique words are added
+ * */
+public class CountMinSketch {
+
+    private final int width;
+    private final int depth;
+    private final int[] counters;
+    private long totalCount;
+
+    public CountMinSketch(int width, int depth) {
+        if (width <= 0 || depth <= 0) {
+            throw new IllegalArgumentException("Sketch width and depth must be positive");
+        }
+        this.width = width;
+        this.depth = depth;
+        this.counters = new int[width * depth];
+    }
+
+    /**
+     * 64-bit FNV-1a over the chars of the word, with a final avalanche mix
+     * Two halves of the hash are combined to get an index for each row (double hashing)
+     * */
+    public static long hash(String word) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < word.length(); i++) {
+            hash = (hash ^ word.charAt(i)) * 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    public void add(long hash) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int row = 0; row < depth; row++) {
+            counters[row * width + Math.floorMod(h1 + row * h2, width)]++;
+        }
+        totalCount++;
+    }
+
+    public int estimate(long hash) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        int min = Integer.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            min = Math.min(min, counters[row * width + Math.floorMod(h1 + row * h2, width)]);
+        }
+        return min;
+    }
+
+    /**
+     * Maximum over-count of any estimate, (e / width) * totalCount
+     * */
+    public long getErrorBound() {
+        return (long) Math.ceil(Math.E / width * totalCount);
+    }
+
+    /**
+     * Probability that an estimate exceeds the error bound, e^-depth
+     * */
+    public double getFailureProbability() {
+        return Math.exp(-depth);
+    }
+
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    /**
+     * Add counters of other sketch into this one, both must have the same dimensions
+     * */
+    public void merge(CountMinSketch other) {
+        if (other.width != width || other.depth != depth) {
+            throw new IllegalArgumentException("Cannot merge sketches with different dimensions");
+        }
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] += other.counters[i];
+        }
+        totalCount += other.totalCount;
+    }
+}
@@ -0,0 +1,151 @@
+package org.example.wordcountingcore.sketch;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * SpaceSaving heavy hitters: monitors at most capacity words with a counter each
+ * When a new word comes and all counters are used, it replaces the word with the minimum count,
+ * and takes over its count (+1), recording that count as its possible error
+ * So for a monitored word, count - error <= real frequency <= count
+ * And any word not monitored has real frequency <= minimum count
+ * Counters are kept in a min-heap, so each update is O(log capacity)
+ * */
+public class SpaceSaving {
+
+    /**
+     * Counter of a monitored word
+     * */
+    public record Counter(long count, long error) {
+    }
+
+    private final int capacity;
+    private final String[] words;
+    private final long[] counts;
+    private final long[] errors;
+    private final Map<String, Integer> positions;
+    private int size;
+
+    public SpaceSaving(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Heavy hitters capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.words = new String[capacity];
+        this.counts = new long[capacity];
+        this.errors = new long[capacity];
+        this.positions = new HashMap<>(capacity * 2);
+    }
+
+    public void add(String word) {
+        Integer position = positions.get(word);
+        if (position != null) {
+            counts[position]++;
+            siftDown(position);
+        } else if (size < capacity) {
+            place(size, word, 1, 0);
+            siftUp(size++);
+        } else {
+            // Replace the minimum, which is the root of the heap
+            long minCount = counts[0];
+            positions.remove(words[0]);
+            place(0, word, minCount + 1, minCount);
+            siftDown(0);
+        }
+    }
+
+    /**
+     * @return counter of the word, or null if the word is not monitored
+     * */
+    public Counter get(String word) {
+        Integer position = positions.get(word);
+        return position == null ? null : new Counter(counts[position], errors[position]);
+    }
+
+    public boolean isFull() {
+        return size == capacity;
+    }
+
+    /**
+     * Upper bound of the frequency of any word that is not monitored
+     * */
+    public long getMinCount() {
+        return isFull() ? counts[0] : 0;
+    }
+
+    /**
+     * Merge other summary into this one
+     * A word missing from a full summary may still have up to its minimum count there,
+     * so that minimum is added to both count and error of the word
+     * */
+    public void merge(SpaceSaving other) {
+        long thisMin = getMinCount();
+        long otherMin = other.getMinCount();
+        Map<String, Counter> merged = new HashMap<>((size + other.size) * 2);
+        for (int i = 0; i < size; i++) {
+            Counter fromOther = other.get(words[i]);
+            merged.put(words[i], fromOther == null
+                    ? new Counter(counts[i] + otherMin, errors[i] + otherMin)
+                    : new Counter(counts[i] + fromOther.count(), errors[i] + fromOther.error()));
+        }
+        for (int i = 0; i < other.size; i++) {
+            merged.putIfAbsent(other.words[i], new Counter(other.counts[i] + thisMin, other.errors[i] + thisMin));
+        }
+
+        List<Map.Entry<String, Counter>> entries = new ArrayList<>(merged.entrySet());
+        entries.sort((a, b) -> Long.compare(b.getValue().count(), a.getValue().count()));
+        positions.clear();
+        size = 0;
+        for (Map.Entry<String, Counter> entry : entries.subList(0, Math.min(capacity, entries.size()))) {
+            place(size, entry.getKey(), entry.getValue().count(), entry.getValue().error());
+            siftUp(size++);
+        }
+    }
+
+    private void place(int position, String word, long count, long error) {
+        words[position] = word;
+        counts[position] = count;
+        errors[position] = error;
+        positions.put(word, position);
+    }
+
+    private void siftUp(int position) {
+        while (position > 0) {
+            int parent = (position - 1) / 2;
+            if (counts[parent] <= counts[position]) {
+                return;
+            }
+            swap(parent, position);
+            position = parent;
+        }
+    }
+
+    private void siftDown(int position) {
+        while (true) {
+            int smallest = position;
+            int left = 2 * position + 1;
+            int right = left + 1;
+            if (left < size && counts[left] < counts[smallest]) {
+                smallest = left;
+            }
+            if (right < size && counts[right] < counts[smallest]) {
+                smallest = right;
+            }
+            if (smallest == position) {
+                return;
+            }
+            swap(position, smallest);
+            position = smallest;
+        }
+    }
+
+    private void swap(int i, int j) {
+        String word = words[i];
+        long count = counts[i];
+        long error = errors[i];
+        place(i, words[j], counts[j], errors[j]);
+        place(j, word, count, error);
+    }
+}
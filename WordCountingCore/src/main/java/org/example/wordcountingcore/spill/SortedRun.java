@@ -0,0 +1,95 @@
+package org.example.wordcountingcore.spill;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Temp file of (word, count) records sorted by word
+ * Each record is preceded by a marker, so the run can be written without knowing its size up front
+ * Words are written as length-prefixed UTF-8 bytes, so a token of any length fits (writeUTF stops at 65535 bytes)
+ * */
+final class SortedRun {
+
+    private static final int IO_BUFFER_SIZE = 1 << 16;
+
+    private SortedRun() {
+    }
+
+    /**
+     * Writer of a new run, records must be appended in sorted order
+     * */
+    static final class Writer implements Closeable {
+        private final DataOutputStream output;
+
+        Writer(Path path) throws IOException {
+            this.output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), IO_BUFFER_SIZE));
+        }
+
+        void write(String word, int count) throws IOException {
+            byte[] bytes = word.getBytes(StandardCharsets.UTF_8);
+            output.writeBoolean(true);
+            output.writeInt(bytes.length);
+            output.write(bytes);
+            output.writeInt(count);
+        }
+
+        @Override
+        public void close() throws IOException {
+            output.writeBoolean(false);
+            output.close();
+        }
+    }
+
+    /**
+     * Sequential reader of a run, positioned on the current record
+     * */
+    static final class Reader implements Closeable {
+        private final DataInputStream input;
+        private byte[] bytes = new byte[64];
+        private String word;
+        private int count;
+
+        Reader(Path path) throws IOException {
+            this.input = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), IO_BUFFER_SIZE));
+        }
+
+        /**
+         * Move to the next record
+         * @return false when the run is exhausted
+         * */
+        boolean next() throws IOException {
+            if (!input.readBoolean()) {
+                word = null;
+                return false;
+            }
+            int length = input.readInt();
+            if (bytes.length < length) {
+                bytes = new byte[Math.max(length, bytes.length * 2)];
+            }
+            input.readFully(bytes, 0, length);
+            word = new String(bytes, 0, length, StandardCharsets.UTF_8);
+            count = input.readInt();
+            return true;
+        }
+
+        String word() {
+            return word;
+        }
+
+        int count() {
+            return count;
+        }
+
+        @Override
+        public void close() throws IOException {
+            input.close();
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package org.example.wordcountingcore.spill;
+
+import org.example.wordcountingcore.dto.SimilarityResult;
+import org.example.wordcountingcore.pipeline.WordCounter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import static org.example.wordcountingcore.dto.SimilarityResult.fromCounts;
+import static org.example.wordcountingcore.dto.SimilarityResult.performComparison;
+
+/**
+ * Exact counting with a fixed heap, for files whose vocabulary doesn't fit in memory
+ * 1. Words are counted in a HashMap, until it reaches maxEntries
+ * 2. Then the map is sorted by word and written to a temp file (sorted run), and counting starts again
+ * 3. At the end, all runs are k-way merged into one sorted stream of (word, count), read sequentially
+ * If the file never reaches the budget, nothing is written and the map is compared directly
+ * Temp files are deleted once compared, or by discard when the count is abandoned
+ * */
+public class SpillingWordCounter implements WordCounter<SpillingWordCounter> {
+
+    /**
+     * Maximum runs open at the same time while merging, more runs are merged in several passes
+     * */
+    private static final int MERGE_FAN_IN = 64;
+
+    private final int maxEntries;
+    private final Path spillDirectory;
+    private final Map<String, Integer> frequency = new HashMap<>();
+    private final List<Path> runs = new ArrayList<>();
+
+    public SpillingWordCounter(int maxEntries, Path spillDirectory) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("Spill entries must be positive");
+        }
+        this.maxEntries = maxEntries;
+        this.spillDirectory = spillDirectory;
+    }
+
+    @Override
+    public void add(String word) {
+        add(word, 1);
+    }
+
+    @Override
+    public SpillingWordCounter merge(SpillingWordCounter other) {
+        runs.addAll(other.runs);
+        other.runs.clear();
+        other.frequency.forEach(this::add);
+        other.frequency.clear();
+        return this;
+    }
+
+    /**
+     * Same comparison as SimilarityResult.performComparison
+     * The merged stream is probed against File A map: words found in both add min(a, b) to the intersection,
+     * every word adds its count to the total of the file, then union = total of A + total of the file - intersection
+     * Temp files are deleted once compared
+     * */
+    public SimilarityResult compareWith(String filename, Map<String, Integer> fileAFreq) {
+        try {
+            if (runs.isEmpty()) {
+                return performComparison(filename, fileAFreq, frequency);
+            }
+            spill();
+            while (runs.size() > MERGE_FAN_IN) {
+                List<Path> batch = new ArrayList<>(runs.subList(0, MERGE_FAN_IN));
+                runs.subList(0, MERGE_FAN_IN).clear();
+                Path merged = Files.createTempFile(spillDirectory, "spill-", ".run");
+                runs.add(merged);
+                try (SortedRun.Writer writer = new SortedRun.Writer(merged)) {
+                    mergeRuns(batch, writer::write);
+                } finally {
+                    deleteAll(batch);
+                }
+            }
+
+            long[] counts = new long[2];
+            mergeRuns(runs, (word, count) -> {
+                Integer countA = fileAFreq.get(word);
+                if (countA != null) {
+                    counts[0] += Math.min(countA, count);
+                }
+                counts[1] += count;
+            });
+            long totalA = 0;
+            for (int countA : fileAFreq.values()) {
+                totalA += countA;
+            }
+            return fromCounts(filename, counts[0], totalA, counts[1]);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            deleteAll(runs);
+            runs.clear();
+        }
+    }
+
+    /**
+     * Delete the runs written so far, when the count failed or was cancelled before compareWith
+     * */
+    @Override
+    public void discard() {
+        deleteAll(runs);
+        runs.clear();
+        frequency.clear();
+    }
+
+    public int getRunCount() {
+        return runs.size();
+    }
+
+    private void add(String word, int count) {
+        frequency.merge(word, count, Integer::sum);
+        if (frequency.size() >= maxEntries) {
+            try {
+                spill();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Write the in-memory map as a sorted run, and empty it
+     * */
+    private void spill() throws IOException {
+        if (frequency.isEmpty()) {
+            return;
+        }
+        List<Map.Entry<String, Integer>> entries = new ArrayList<>(frequency.entrySet());
+        entries.sort(Map.Entry.comparingByKey());
+        Path run = Files.createTempFile(spillDirectory, "spill-", ".run");
+        runs.add(run);
+        try (SortedRun.Writer writer = new SortedRun.Writer(run)) {
+            for (Map.Entry<String, Integer> entry : entries) {
+                writer.write(entry.getKey(), entry.getValue());
+            }
+        }
+        frequency.clear();
+    }
+
+    /**
+     * K-way merge, the same word from different runs is summed, words come out in sorted order
+     * */
+    private static void mergeRuns(List<Path> runs, MergedEntryConsumer consumer) throws IOException {
+        PriorityQueue<SortedRun.Reader> heads = new PriorityQueue<>(Math.max(1, runs.size()),
+                Comparator.comparing(SortedRun.Reader::word));
+        List<SortedRun.Reader> readers = new ArrayList<>(runs.size());
+        try {
+            for (Path run : runs) {
+                SortedRun.Reader reader = new SortedRun.Reader(run);
+                readers.add(reader);
+                if (reader.next()) {
+                    heads.add(reader);
+                }
+            }
+            while (!heads.isEmpty()) {
+                SortedRun.Reader head = heads.poll();
+                String word = head.word();
+                int count = head.count();
+                if (head.next()) {
+                    heads.add(head);
+                }
+                while (!heads.isEmpty() && heads.peek().word().equals(word)) {
+                    SortedRun.Reader same = heads.poll();
+                    count += same.count();
+                    if (same.next()) {
+                        heads.add(same);
+                    }
+                }
+                consumer.accept(word, count);
+            }
+        } finally {
+            for (SortedRun.Reader reader : readers) {
+                reader.close();
+            }
+        }
+    }
+
+    private static void deleteAll(List<Path> paths) {
+        for (Path path : paths) {
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException ignored) {
+                // Temp directory is cleaned by the OS anyway
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface MergedEntryConsumer {
+        void accept(String word, int count) throws IOException;
+    }
+}
@@ -0,0 +1,121 @@
+package org.example.wordcountingcore.ngram;
+
+import org.example.wordcountingcore.dto.SimilarityResult;
+import org.example.wordcountingcore.pipeline.Utf8Tokenizer;
+import org.example.wordcountingcore.pipeline.WordCountPipeline;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.core.io.ByteArrayResource;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ShingleCounterTest {
+
+    private static final String[] WORDS = {"the", "quick", "brown", "fox", "jumps", "over", "lazy", "dog",
+            "and", "runs", "far", "away", "from", "river", "bank", "naïve", "café", "слово", "日本語"};
+
+    @ParameterizedTest
+    @ValueSource(ints = {3, 4, 5})
+    void copiedTextScoresHigherThanReorderedText(int n) {
+        List<String> words = randomWords(2_000, 1);
+        List<String> reordered = new ArrayList<>(words);
+        Collections.shuffle(reordered, new Random(2));
+        // A quarter of File A copied in the middle of other text
+        List<String> passage = new ArrayList<>(randomWords(1_000, 3));
+        passage.addAll(500, words.subList(500, 1_000));
+
+        ShingleCounter fileA = count(n, words);
+        double copied = count(n, words).compareWith("copied", fileA).getSimilarityScore();
+        double shuffled = count(n, reordered).compareWith("reordered", fileA).getSimilarityScore();
+        double partial = count(n, passage).compareWith("passage", fileA).getSimilarityScore();
+
+        assertThat(copied).isEqualTo(100.0);
+        assertThat(partial).isGreaterThan(15.0);
+        assertThat(shuffled).isLessThan(partial / 2);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 3, 4, 5})
+    void parallelCountEqualsCountingInFileOrder(int n) throws IOException {
+        List<String> words = randomWords(20_000, 4);
+        byte[] text = String.join(" ", words).getBytes(StandardCharsets.UTF_8);
+        ShingleCounter expected = count(n, words);
+
+        // Small buffers give chunks with fewer than n words, so shingles cross several chunks
+        for (int bufferSize : new int[]{16, 40, 4096}) {
+            for (int workers : new int[]{1, 2, 4}) {
+                ShingleCounter counted = new WordCountPipeline(bufferSize, 8, workers)
+                        .count(new ByteArrayResource(text), () -> new ShingleCounter(n));
+
+                assertThat(counted.getTotalShingles()).as("buffer size %d, workers %d", bufferSize, workers)
+                        .isEqualTo(words.size() - n + 1);
+                assertThat(counted.getUniqueShingles()).isEqualTo(expected.getUniqueShingles());
+                assertSame(counted.compareWith("counted", expected));
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {3, 4, 5})
+    void filesWithFewerThanNWordsHaveOneShingle(int n) {
+        List<String> shortText = List.of("hello", "world");
+
+        ShingleCounter fileA = count(n, shortText);
+        assertThat(fileA.getTotalShingles()).isEqualTo(1);
+        assertSame(count(n, shortText).compareWith("same", fileA));
+        assertThat(count(n, List.of("world", "hello")).compareWith("reordered", fileA).getSimilarityScore()).isZero();
+        assertThat(count(n, List.of()).compareWith("empty", fileA).getSimilarityScore()).isZero();
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {3, 4, 5})
+    void shortFileMatchesAcrossChunks(int n) throws IOException {
+        byte[] text = "hello, world".getBytes(StandardCharsets.UTF_8);
+        ShingleCounter fileA = count(n, List.of("hello", "world"));
+
+        ShingleCounter counted = new WordCountPipeline(8, 4, 2).count(new ByteArrayResource(text), () -> new ShingleCounter(n));
+
+        assertSame(counted.compareWith("file", fileA));
+    }
+
+    private static void assertSame(SimilarityResult result) {
+        assertThat(result.getSimilarityScore()).isEqualTo(100.0);
+        assertThat(result.getIntersectionCount()).isEqualTo(result.getTotalCount());
+    }
+
+    /**
+     * Count words in file order, one word at a time through the tokenizer
+     * */
+    private static ShingleCounter count(int n, List<String> words) {
+        ShingleCounter counter = new ShingleCounter(n);
+        byte[] text = String.join(" ", words).getBytes(StandardCharsets.UTF_8);
+        new Utf8Tokenizer().tokenize(text, text.length, counter);
+        return counter;
+    }
+
+    /**
+     * Common words mixed with a thousand rare ones, spelled with letters only
+     * */
+    private static List<String> randomWords(int count, long seed) {
+        Random random = new Random(seed);
+        String[] words = new String[count];
+        Arrays.setAll(words, i -> random.nextBoolean() ? WORDS[random.nextInt(WORDS.length)] : rareWord(random.nextInt(1_000)));
+        return Arrays.asList(words);
+    }
+
+    private static String rareWord(int id) {
+        StringBuilder word = new StringBuilder("w");
+        for (char c : Integer.toString(id).toCharArray()) {
+            word.append((char) ('a' + c - '0'));
+        }
+        return word.toString();
+    }
+}
@@ -0,0 +1,214 @@
+package org.example.wordcountingcore.pipeline;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class Utf8TokenizerTest {
+
+    @Test
+    void lettersOfEveryScriptAreLowerCased() {
+        assertThat(tokenize("Café naïve RÉSUMÉ")).containsExactly("café", "naïve", "résumé");
+        assertThat(tokenize("Привет, МИР!")).containsExactly("привет", "мир");
+        assertThat(tokenize("日本語 テスト 한국어")).containsExactly("日本語", "テスト", "한국어");
+        assertThat(tokenize("ΣΟΦΙΑ")).containsExactly("σοφια");
+    }
+
+    @Test
+    void supplementaryLettersAreWords() {
+        // Deseret has upper and lower case above the BMP, CJK extension B is a letter without case
+        assertThat(tokenize("𐐀𐐁 𠀀𠀁")).containsExactly("𐐨𐐩", "𠀀𠀁");
+        assertThat(tokenize("a😀b")).containsExactly("a", "b");
+    }
+
+    @Test
+    void titleCaseAndSpecialLowerCaseMappings() {
+        assertThat(tokenize("ǅemal")).containsExactly("ǆemal");
+        // Simple one to one mapping: İ lower cases to i, and gets a byte shorter
+        assertThat(tokenize("İSTANBUL")).containsExactly("istanbul");
+        // Ⱥ lower cases to a 3 bytes ⱥ, so the word grows by half
+        assertThat(tokenize("ȺȺȺȺȺȺ")).containsExactly("ⱥⱥⱥⱥⱥⱥ");
+        assertThat(tokenize("ẞ STRASSE")).containsExactly("ß", "strasse");
+    }
+
+    @Test
+    void marksStayInWordsAndDigitsOrConnectorsDropThem() {
+        assertThat(tokenize("café ë")).containsExactly("café", "ë");
+        assertThat(tokenize("abc123 x_y 42 ok")).containsExactly("ok");
+    }
+
+    @Test
+    void malformedBytesAreSeparators() {
+        assertThat(tokenize(bytes("ab", 0x80, "cd"))).containsExactly("ab", "cd");
+        assertThat(tokenize(bytes("ab", 0xFF, "cd", 0xFE))).containsExactly("ab", "cd");
+        // Overlong encoding of '/' and of 'A', a surrogate, and a code point above U+10FFFF
+        assertThat(tokenize(bytes("ab", 0xC0, 0xAF, "cd"))).containsExactly("ab", "cd");
+        assertThat(tokenize(bytes("ab", 0xE0, 0x81, 0x81, "cd"))).containsExactly("ab", "cd");
+        assertThat(tokenize(bytes("ab", 0xED, 0xA0, 0x80, "cd"))).containsExactly("ab", "cd");
+        assertThat(tokenize(bytes("ab", 0xF4, 0x90, 0x80, 0x80, "cd"))).containsExactly("ab", "cd");
+        // Lead byte followed by ASCII instead of continuation bytes
+        assertThat(tokenize(bytes("ab", 0xE6, "cd"))).containsExactly("ab", "cd");
+    }
+
+    @Test
+    void truncatedSequenceAtTheEndIsASeparator() {
+        byte[] text = "ab 日".getBytes(StandardCharsets.UTF_8);
+        for (int length = text.length - 2; length < text.length; length++) {
+            List<String> words = new ArrayList<>();
+            new Utf8Tokenizer().tokenize(text, length, new ListCounter(words));
+            assertThat(words).as("length %d", length).containsExactly("ab");
+        }
+    }
+
+    @Test
+    void sameWordsAsDecodingToString() {
+        String[] pieces = {"word", "Ünïcödé", "слово", "日本", "𐐀x", "ǅ", "İ", "é", " ", ", ", "\n", "12", "_", "😀", "Ⱥ"};
+        int[] malformed = {0x80, 0xBF, 0xC0, 0xC3, 0xE6, 0xED, 0xF0, 0xF4, 0xFF};
+        Random random = new Random(5);
+        for (int round = 0; round < 500; round++) {
+            ByteArrayOutputStream text = new ByteArrayOutputStream();
+            for (int i = 0; i < 20; i++) {
+                if (random.nextInt(10) == 0) {
+                    text.write(malformed[random.nextInt(malformed.length)]);
+                } else {
+                    text.writeBytes(pieces[random.nextInt(pieces.length)].getBytes(StandardCharsets.UTF_8));
+                }
+            }
+            byte[] bytes = text.toByteArray();
+            assertThat(tokenize(bytes)).as("round %d", round).isEqualTo(decodeAndSplit(bytes));
+        }
+    }
+
+    @Test
+    void lastBoundaryNeverSplitsACharacter() {
+        byte[] text = "Ab ünï, 日本語\n𐐀𐐁 ȺȺ.слово😀x".getBytes(StandardCharsets.UTF_8);
+        String whole = new String(text, StandardCharsets.UTF_8);
+        for (int length = 1; length <= text.length; length++) {
+            int boundary = Utf8Tokenizer.lastBoundary(text, length);
+            assertThat(boundary).isBetween(0, length);
+            if (boundary > 0) {
+                assertThat(isCharacterStart(text, boundary)).as("length %d, boundary %d", length, boundary).isTrue();
+                assertThat(whole).startsWith(new String(text, 0, boundary, StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    @Test
+    void lastBoundaryCutsAfterTheLastSeparator() {
+        byte[] text = "日本 語テスト".getBytes(StandardCharsets.UTF_8);
+        assertThat(Utf8Tokenizer.lastBoundary(text, text.length)).isEqualTo("日本 ".getBytes(StandardCharsets.UTF_8).length);
+
+        // No separator: one word, the buffer can't be cut
+        byte[] word = "日本語".getBytes(StandardCharsets.UTF_8);
+        assertThat(Utf8Tokenizer.lastBoundary(word, word.length)).isEqualTo(0);
+        assertThat(Utf8Tokenizer.lastBoundary(word, word.length - 1)).isEqualTo(0);
+        assertThat(Utf8Tokenizer.lastBoundary(word, 2)).isEqualTo(0);
+    }
+
+    @Test
+    void rangeIsTokenizedLikeACopyOfIt() {
+        byte[] text = "skip Ünïcödé слово 日本 skip".getBytes(StandardCharsets.UTF_8);
+        int from = "skip ".length();
+        int to = text.length - " skip".length();
+        List<String> words = new ArrayList<>();
+        new Utf8Tokenizer().tokenize(text, from, to, new ListCounter(words));
+        assertThat(words).containsExactly("ünïcödé", "слово", "日本");
+    }
+
+    @Test
+    void nextSeparatorSkipsTheRestOfACutCharacter() {
+        byte[] text = "日本 語".getBytes(StandardCharsets.UTF_8);
+        for (int from = 0; from < 6; from++) {
+            assertThat(Utf8Tokenizer.nextSeparator(text, from, text.length)).as("from %d", from).isEqualTo(6);
+        }
+        assertThat(Utf8Tokenizer.nextSeparator(text, 7, text.length)).isEqualTo(text.length);
+        assertThat(Utf8Tokenizer.isSeparator(text, 6, text.length)).isTrue();
+        assertThat(Utf8Tokenizer.isSeparator(text, 3, text.length)).isFalse();
+        assertThat(Utf8Tokenizer.isSeparator(bytes(0x80), 0, 1)).isTrue();
+    }
+
+    private static boolean isCharacterStart(byte[] bytes, int i) {
+        return i == bytes.length || (bytes[i] & 0xC0) != 0x80;
+    }
+
+    /**
+     * Reference tokenization: decode with the JDK (malformed bytes become U+FFFD), split on non word characters,
+     * keep words made of letters and marks, lower case each code point
+     * */
+    private static List<String> decodeAndSplit(byte[] bytes) {
+        String text = new String(bytes, StandardCharsets.UTF_8);
+        List<String> words = new ArrayList<>();
+        StringBuilder word = new StringBuilder();
+        boolean onlyLetters = true;
+        for (int i = 0; i <= text.length(); ) {
+            int codePoint = i < text.length() ? text.codePointAt(i) : ' ';
+            boolean letter = Character.isLetter(codePoint) || isMark(codePoint);
+            boolean wordCharacter = letter || Character.getType(codePoint) == Character.DECIMAL_DIGIT_NUMBER
+                    || Character.getType(codePoint) == Character.CONNECTOR_PUNCTUATION;
+            if (wordCharacter) {
+                word.appendCodePoint(Character.toLowerCase(codePoint));
+                onlyLetters &= letter;
+            } else {
+                if (!word.isEmpty() && onlyLetters) {
+                    words.add(word.toString());
+                }
+                word.setLength(0);
+                onlyLetters = true;
+            }
+            i += Character.charCount(codePoint);
+        }
+        return words;
+    }
+
+    private static boolean isMark(int codePoint) {
+        int type = Character.getType(codePoint);
+        return type == Character.NON_SPACING_MARK || type == Character.COMBINING_SPACING_MARK || type == Character.ENCLOSING_MARK;
+    }
+
+    private static List<String> tokenize(String text) {
+        return tokenize(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static List<String> tokenize(byte[] text) {
+        List<String> words = new ArrayList<>();
+        new Utf8Tokenizer().tokenize(text, text.length, new ListCounter(words));
+        return words;
+    }
+
+    /**
+     * Text made of strings (UTF-8) and raw bytes
+     * */
+    private static byte[] bytes(Object... parts) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        for (Object part : parts) {
+            if (part instanceof String string) {
+                bytes.writeBytes(string.getBytes(StandardCharsets.UTF_8));
+            } else {
+                bytes.write((Integer) part);
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Counter that keeps the words in order
+     * */
+    private record ListCounter(List<String> words) implements WordCounter<ListCounter> {
+        @Override
+        public void add(String word) {
+            words.add(word);
+        }
+
+        @Override
+        public ListCounter merge(ListCounter other) {
+            words.addAll(other.words);
+            return this;
+        }
+    }
+}
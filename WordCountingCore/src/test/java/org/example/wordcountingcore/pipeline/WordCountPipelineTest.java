@@ -0,0 +1,213 @@
+package org.example.wordcountingcore.pipeline;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.InputStreamResource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+class WordCountPipelineTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(20);
+
+    private static final String[] WORDS = {"the", "Cat", "sat", "on", "mat", "café", "naïve", "привет", "日本語", "ΣΟΦΙΑ", "x1", "a_b"};
+    private static final String[] SEPARATORS = {" ", "  ", "\n", ", ", "\r\n", ". ", "-"};
+
+    @Test
+    void countsDoNotDependOnBufferSizeOrWorkers() throws Exception {
+        byte[] text = randomText(200_000, 42);
+        Map<String, Integer> expected = countAtOnce(text);
+
+        // Every buffer holds the longest word (12 bytes) and the separator after it, so no word is cut
+        for (int bufferSize : new int[]{13, 14, 17, 64, 1000, 65536}) {
+            for (int workers : new int[]{1, 2, 4}) {
+                WordCountPipeline pipeline = new WordCountPipeline(bufferSize, 8, workers);
+                Map<String, Integer> counted = assertTimeoutPreemptively(TIMEOUT,
+                        () -> pipeline.count(new ByteArrayResource(text)));
+                assertThat(counted).as("buffer size %d, workers %d", bufferSize, workers).isEqualTo(expected);
+            }
+        }
+    }
+
+    @Test
+    void wordsLongerThanTheBufferAreCountedWhole() throws Exception {
+        String text = "abcdefghijklmnopqrstuvwxyz ééééééééééééééé короткое оченьдлинноеслово 日本語日本語日本語 short "
+                + "x".repeat(10_000) + " short";
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        Map<String, Integer> expected = countAtOnce(bytes);
+
+        for (int bufferSize : new int[]{4, 5, 7, 8, 16}) {
+            for (int workers : new int[]{1, 3}) {
+                // Two pooled buffers only, so a larger buffer given back to the pool would fail the next count
+                WordCountPipeline pipeline = new WordCountPipeline(bufferSize, 2, workers);
+                for (int round = 0; round < 2; round++) {
+                    Map<String, Integer> counted = assertTimeoutPreemptively(TIMEOUT,
+                            () -> pipeline.count(new ByteArrayResource(bytes)));
+                    assertThat(counted).as("buffer size %d, workers %d", bufferSize, workers).isEqualTo(expected);
+                }
+            }
+        }
+    }
+
+    @Test
+    void throwingCounterFailsTheCountInsteadOfHanging() {
+        byte[] text = randomText(500_000, 7);
+        // Small ring and many chunks, so the reader would block forever if a failed counter stopped draining
+        WordCountPipeline pipeline = new WordCountPipeline(64, 2, 3);
+
+        assertTimeoutPreemptively(TIMEOUT, () -> {
+            assertThatThrownBy(() -> pipeline.count(new ByteArrayResource(text), () -> new FailingCounter(100, false)))
+                    .hasRootCauseInstanceOf(IllegalStateException.class);
+            assertThatThrownBy(() -> pipeline.count(new ByteArrayResource(text), () -> new FailingCounter(100, true)))
+                    .hasRootCauseInstanceOf(AssertionError.class);
+            assertThatThrownBy(() -> pipeline.count(new ByteArrayResource(text), FailingCounter::failingFactory))
+                    .isInstanceOf(IllegalStateException.class);
+
+            // Every buffer was given back, otherwise this count would block on the pool
+            assertThat(pipeline.count(new ByteArrayResource(text))).isEqualTo(countAtOnce(text));
+        });
+    }
+
+    @Test
+    void cancelledCountDoesNotWaitOnAStuckRead() throws Exception {
+        byte[] text = randomText(1_000, 3);
+        for (boolean closeWakesRead : new boolean[]{true, false}) {
+            WordCountPipeline pipeline = new WordCountPipeline(64, 2, 2);
+            StuckInputStream stream = new StuckInputStream(text, closeWakesRead);
+            AtomicReference<Throwable> failure = new AtomicReference<>();
+            Thread counting = Thread.ofVirtual().start(() -> {
+                try {
+                    pipeline.count(new InputStreamResource(stream));
+                } catch (Throwable e) {
+                    failure.set(e);
+                }
+            });
+            assertThat(stream.stuck.await(TIMEOUT.toSeconds(), TimeUnit.SECONDS)).isTrue();
+
+            counting.interrupt();
+            assertThat(counting.join(TIMEOUT)).as("close wakes read %s", closeWakesRead).isTrue();
+            assertThat(failure.get()).hasMessageContaining("interrupted");
+            assertThat(stream.closed).isTrue();
+
+            // The reader gives its buffer back once its read returns, so the next count gets the whole pool
+            stream.release.countDown();
+            assertThat(assertTimeoutPreemptively(TIMEOUT, () -> pipeline.count(new ByteArrayResource(text))))
+                    .isEqualTo(countAtOnce(text));
+        }
+    }
+
+    private static Map<String, Integer> countAtOnce(byte[] text) {
+        HashMapWordCounter counter = new HashMapWordCounter();
+        new Utf8Tokenizer().tokenize(text, text.length, counter);
+        return counter.getFrequency();
+    }
+
+    private static byte[] randomText(int words, long seed) {
+        Random random = new Random(seed);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            text.append(WORDS[random.nextInt(WORDS.length)]).append(SEPARATORS[random.nextInt(SEPARATORS.length)]);
+        }
+        return text.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Throws after a number of words, with a RuntimeException or an Error
+     * */
+    private static final class FailingCounter implements WordCounter<FailingCounter> {
+        private final int wordsBeforeFailure;
+        private final boolean error;
+        private int words;
+
+        private FailingCounter(int wordsBeforeFailure, boolean error) {
+            this.wordsBeforeFailure = wordsBeforeFailure;
+            this.error = error;
+        }
+
+        private static FailingCounter failingFactory() {
+            throw new IllegalStateException("Counter can't be created");
+        }
+
+        @Override
+        public void add(String word) {
+            if (++words > wordsBeforeFailure) {
+                if (error) {
+                    throw new AssertionError("Counter failed");
+                }
+                throw new IllegalStateException("Counter failed");
+            }
+        }
+
+        @Override
+        public FailingCounter merge(FailingCounter other) {
+            return this;
+        }
+    }
+
+    /**
+     * Gives one read, then blocks ignoring interrupts, like a read on a stalled network mount
+     * Closing it wakes the read up only if closeWakesRead
+     * */
+    private static final class StuckInputStream extends InputStream {
+        private final byte[] head;
+        private final boolean closeWakesRead;
+        private final CountDownLatch stuck = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+        private volatile boolean closed;
+        private boolean headRead;
+
+        private StuckInputStream(byte[] head, boolean closeWakesRead) {
+            this.head = head;
+            this.closeWakesRead = closeWakesRead;
+        }
+
+        @Override
+        public int read() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            if (!headRead) {
+                headRead = true;
+                int count = Math.min(length, head.length);
+                System.arraycopy(head, 0, bytes, offset, count);
+                return count;
+            }
+            stuck.countDown();
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    release.await();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            throw new IOException("Stream closed");
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            if (closeWakesRead) {
+                release.countDown();
+            }
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package org.example.wordcountingcore.sketch;
+
+import org.example.wordcountingcore.dto.ApproximateSimilarityResult;
+import org.example.wordcountingcore.dto.SimilarityResult;
+import org.example.wordcountingcore.pipeline.WordCountPipeline;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ByteArrayResource;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.example.wordcountingcore.dto.SimilarityResult.performComparison;
+
+class BoundedWordCounterTest {
+
+    private final WordCountPipeline pipeline = new WordCountPipeline(4096, 8, 3);
+
+    @Test
+    void boundsBracketTheExactResult() throws IOException {
+        Map<String, Integer> fileAFreq = pipeline.count(new ByteArrayResource(text(30_000, 2_000, 1)));
+        for (long seed = 2; seed < 6; seed++) {
+            byte[] file = text(60_000, 20_000, seed);
+            SimilarityResult exact = performComparison("file", fileAFreq, pipeline.count(new ByteArrayResource(file)));
+
+            ApproximateSimilarityResult bounded = pipeline.count(new ByteArrayResource(file), () -> new BoundedWordCounter(200, 2048, 5))
+                    .compareWith("file", fileAFreq);
+
+            assertThat(exact.getIntersectionCount()).isBetween(bounded.getIntersectionLowerBound(), bounded.getIntersectionUpperBound());
+            assertThat(exact.getTotalCount()).isBetween(bounded.getUnionLowerBound(), bounded.getUnionUpperBound());
+            assertThat(exact.getSimilarityScore()).isBetween(bounded.getScoreLowerBound(), bounded.getScoreUpperBound());
+            assertThat(bounded.getSimilarityScore()).isBetween(bounded.getScoreLowerBound(), bounded.getScoreUpperBound());
+            // Point estimate is the midpoint, not the upper bound
+            assertThat(bounded.getIntersectionCount())
+                    .isEqualTo((bounded.getIntersectionLowerBound() + bounded.getIntersectionUpperBound()) / 2);
+            if (bounded.getScoreLowerBound() < bounded.getScoreUpperBound()) {
+                assertThat(bounded.getSimilarityScore()).isLessThan(bounded.getScoreUpperBound());
+            }
+        }
+    }
+
+    @Test
+    void vocabularyThatFitsGivesTheExactResult() throws IOException {
+        Map<String, Integer> fileAFreq = pipeline.count(new ByteArrayResource(text(5_000, 300, 7)));
+        byte[] file = text(8_000, 400, 8);
+        SimilarityResult exact = performComparison("file", fileAFreq, pipeline.count(new ByteArrayResource(file)));
+
+        ApproximateSimilarityResult bounded = pipeline.count(new ByteArrayResource(file), () -> new BoundedWordCounter(1_000, 256, 4))
+                .compareWith("file", fileAFreq);
+
+        assertThat(bounded.getIntersectionCount()).isEqualTo(exact.getIntersectionCount());
+        assertThat(bounded.getTotalCount()).isEqualTo(exact.getTotalCount());
+        assertThat(bounded.getSimilarityScore()).isEqualTo(exact.getSimilarityScore());
+        assertThat(bounded.getScoreLowerBound()).isEqualTo(bounded.getScoreUpperBound());
+    }
+
+    /**
+     * Skewed random words from a vocabulary of the given size, word ids are spelled with letters only
+     * */
+    private static byte[] text(int words, int vocabulary, long seed) {
+        Random random = new Random(seed);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            int id = (int) (Math.pow(random.nextDouble(), 3) * vocabulary);
+            text.append('w');
+            for (char c : Integer.toString(id).toCharArray()) {
+                text.append((char) ('a' + c - '0'));
+            }
+            text.append(' ');
+        }
+        return text.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
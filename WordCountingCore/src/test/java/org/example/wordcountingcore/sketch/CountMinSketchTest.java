@@ -0,0 +1,74 @@
+package org.example.wordcountingcore.sketch;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CountMinSketchTest {
+
+    @Test
+    void estimatesAreWithinTheErrorBound() {
+        CountMinSketch sketch = new CountMinSketch(272, 5);
+        Map<String, Integer> exact = new HashMap<>();
+        Random random = new Random(3);
+        for (int i = 0; i < 200_000; i++) {
+            String word = "w" + (int) (Math.pow(random.nextDouble(), 3) * 20_000);
+            exact.merge(word, 1, Integer::sum);
+            sketch.add(CountMinSketch.hash(word));
+        }
+
+        assertThat(sketch.getTotalCount()).isEqualTo(200_000);
+        int overBound = 0;
+        for (Map.Entry<String, Integer> entry : exact.entrySet()) {
+            int estimate = sketch.estimate(CountMinSketch.hash(entry.getKey()));
+            assertThat(estimate).as(entry.getKey()).isGreaterThanOrEqualTo(entry.getValue());
+            if (estimate - entry.getValue() > sketch.getErrorBound()) {
+                overBound++;
+            }
+        }
+        // Each estimate exceeds the bound with probability e^-depth at most
+        assertThat(overBound).isLessThanOrEqualTo((int) Math.ceil(exact.size() * sketch.getFailureProbability()));
+    }
+
+    @Test
+    void wordNotAddedMayOnlyBeOverCounted() {
+        CountMinSketch sketch = new CountMinSketch(1000, 4);
+        for (int i = 0; i < 100; i++) {
+            sketch.add(CountMinSketch.hash("w" + i));
+        }
+
+        assertThat(sketch.estimate(CountMinSketch.hash("missing")))
+                .isBetween(0, (int) sketch.getErrorBound());
+    }
+
+    @Test
+    void mergeEqualsCountingEverythingInOneSketch() {
+        CountMinSketch whole = new CountMinSketch(64, 3);
+        CountMinSketch first = new CountMinSketch(64, 3);
+        CountMinSketch second = new CountMinSketch(64, 3);
+        for (int i = 0; i < 5_000; i++) {
+            long hash = CountMinSketch.hash("w" + (i % 700));
+            whole.add(hash);
+            (i % 3 == 0 ? first : second).add(hash);
+        }
+
+        first.merge(second);
+
+        assertThat(first.getTotalCount()).isEqualTo(whole.getTotalCount());
+        for (int i = 0; i < 700; i++) {
+            long hash = CountMinSketch.hash("w" + i);
+            assertThat(first.estimate(hash)).isEqualTo(whole.estimate(hash));
+        }
+    }
+
+    @Test
+    void sketchesWithDifferentDimensionsCannotBeMerged() {
+        assertThatThrownBy(() -> new CountMinSketch(64, 3).merge(new CountMinSketch(32, 3)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,109 @@
+package org.example.wordcountingcore.sketch;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SpaceSavingTest {
+
+    @Test
+    void countsAreExactUntilFull() {
+        SpaceSaving summary = new SpaceSaving(3);
+        for (String word : new String[]{"a", "b", "a", "c", "a", "b"}) {
+            summary.add(word);
+        }
+
+        assertThat(summary.isFull()).isTrue();
+        assertThat(summary.get("a")).isEqualTo(new SpaceSaving.Counter(3, 0));
+        assertThat(summary.get("b")).isEqualTo(new SpaceSaving.Counter(2, 0));
+        assertThat(summary.get("c")).isEqualTo(new SpaceSaving.Counter(1, 0));
+        assertThat(summary.getMinCount()).isEqualTo(1);
+    }
+
+    @Test
+    void newWordReplacesTheMinimumAndTakesItsCountAsError() {
+        SpaceSaving summary = new SpaceSaving(2);
+        for (String word : new String[]{"a", "a", "a", "b", "c"}) {
+            summary.add(word);
+        }
+
+        assertThat(summary.get("b")).isNull();
+        assertThat(summary.get("a")).isEqualTo(new SpaceSaving.Counter(3, 0));
+        assertThat(summary.get("c")).isEqualTo(new SpaceSaving.Counter(2, 1));
+        assertThat(summary.getMinCount()).isEqualTo(2);
+    }
+
+    @Test
+    void boundsHoldOnSkewedStream() {
+        Map<String, Long> exact = new HashMap<>();
+        SpaceSaving summary = new SpaceSaving(50);
+        Random random = new Random(1);
+        for (int i = 0; i < 100_000; i++) {
+            String word = skewedWord(random);
+            exact.merge(word, 1L, Long::sum);
+            summary.add(word);
+        }
+
+        assertBounds(summary, exact);
+        // The most frequent words are monitored
+        assertThat(summary.get("w0")).isNotNull();
+        assertThat(summary.get("w1")).isNotNull();
+    }
+
+    @Test
+    void mergeKeepsBounds() {
+        Map<String, Long> exact = new HashMap<>();
+        SpaceSaving merged = new SpaceSaving(50);
+        Random random = new Random(2);
+        for (int part = 0; part < 4; part++) {
+            SpaceSaving summary = new SpaceSaving(50);
+            // Each part has its own skew, so parts disagree on their heavy hitters
+            for (int i = 0; i < 30_000; i++) {
+                String word = part % 2 == 0 ? skewedWord(random) : "v" + skewedWord(random);
+                exact.merge(word, 1L, Long::sum);
+                summary.add(word);
+            }
+            merged.merge(summary);
+            assertBounds(merged, exact);
+        }
+    }
+
+    @Test
+    void mergeOfSummariesThatAreNotFullIsExact() {
+        SpaceSaving first = new SpaceSaving(10);
+        SpaceSaving second = new SpaceSaving(10);
+        for (String word : new String[]{"a", "b", "a"}) {
+            first.add(word);
+        }
+        for (String word : new String[]{"b", "c"}) {
+            second.add(word);
+        }
+
+        first.merge(second);
+
+        assertThat(first.isFull()).isFalse();
+        assertThat(first.get("a")).isEqualTo(new SpaceSaving.Counter(2, 0));
+        assertThat(first.get("b")).isEqualTo(new SpaceSaving.Counter(2, 0));
+        assertThat(first.get("c")).isEqualTo(new SpaceSaving.Counter(1, 0));
+    }
+
+    private static void assertBounds(SpaceSaving summary, Map<String, Long> exact) {
+        for (Map.Entry<String, Long> entry : exact.entrySet()) {
+            SpaceSaving.Counter counter = summary.get(entry.getKey());
+            if (counter == null) {
+                assertThat(entry.getValue()).as(entry.getKey()).isLessThanOrEqualTo(summary.getMinCount());
+            } else {
+                assertThat(entry.getValue()).as(entry.getKey())
+                        .isBetween(counter.count() - counter.error(), counter.count());
+            }
+        }
+    }
+
+    private static String skewedWord(Random random) {
+        return "w" + (int) (Math.pow(random.nextDouble(), 4) * 5_000);
+    }
+}
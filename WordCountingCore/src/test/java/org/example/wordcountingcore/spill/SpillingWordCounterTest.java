@@ -0,0 +1,139 @@
+package org.example.wordcountingcore.spill;
+
+import org.example.wordcountingcore.dto.SimilarityResult;
+import org.example.wordcountingcore.pipeline.WordCountPipeline;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.example.wordcountingcore.dto.SimilarityResult.performComparison;
+
+class SpillingWordCounterTest {
+
+    @TempDir
+    Path spillDirectory;
+
+    @Test
+    void spilledCountGivesTheExactScore() throws IOException {
+        Map<String, Integer> fileAFreq = count(new WordCountPipeline(4096, 8, 1), text(20_000, 2_000, 1));
+        byte[] file = text(50_000, 3_000, 2);
+
+        // 3 workers with 16 entries each write hundreds of runs, so they are merged in several passes
+        WordCountPipeline pipeline = new WordCountPipeline(4096, 8, 3);
+        SpillingWordCounter counter = pipeline.count(new ByteArrayResource(file), () -> new SpillingWordCounter(16, spillDirectory));
+        assertThat(counter.getRunCount()).isGreaterThan(64);
+
+        assertSameResult(counter.compareWith("file", fileAFreq), performComparison("file", fileAFreq, count(pipeline, file)));
+        assertNoTempFiles();
+    }
+
+    @Test
+    void extraWordsOfThePoolFileAreInTheUnion() throws IOException {
+        WordCountPipeline pipeline = new WordCountPipeline(4096, 8, 1);
+        Map<String, Integer> fileAFreq = count(pipeline, "the cat sat on the mat".getBytes(StandardCharsets.UTF_8));
+        byte[] file = "the cat sat on the mat and a dog ran far away".getBytes(StandardCharsets.UTF_8);
+
+        SimilarityResult spilled = pipeline.count(new ByteArrayResource(file), () -> new SpillingWordCounter(1, spillDirectory))
+                .compareWith("file", fileAFreq);
+
+        assertThat(spilled.getTotalCount()).isEqualTo(12);
+        assertThat(spilled.getIntersectionCount()).isEqualTo(6);
+        assertThat(spilled.getSimilarityScore()).isEqualTo(50.0);
+        assertSameResult(spilled, performComparison("file", fileAFreq, count(pipeline, file)));
+    }
+
+    @Test
+    void tokensLongerThanWriteUtfLimitAreSpilled() throws IOException {
+        String longWord = "é".repeat(70_000);
+        String supplementary = "𝒜𝒞𝒟";
+        Map<String, Integer> fileAFreq = Map.of(longWord, 2, supplementary, 1, "short", 1);
+
+        SpillingWordCounter counter = new SpillingWordCounter(1, spillDirectory);
+        for (String word : new String[]{longWord, "short", supplementary, longWord, "other"}) {
+            counter.add(word);
+        }
+        assertThat(counter.getRunCount()).isGreaterThan(1);
+
+        SimilarityResult result = counter.compareWith("file", fileAFreq);
+        assertThat(result.getIntersectionCount()).isEqualTo(4);
+        assertThat(result.getTotalCount()).isEqualTo(5);
+        assertNoTempFiles();
+    }
+
+    @Test
+    void runsAreDeletedWhenCountingFails() throws IOException {
+        byte[] file = text(50_000, 3_000, 3);
+        // Fails half way, after the counters have spilled
+        Resource failing = new AbstractResource() {
+            @Override
+            public String getDescription() {
+                return "failing resource";
+            }
+
+            @Override
+            public InputStream getInputStream() {
+                return new ByteArrayInputStream(file) {
+                    @Override
+                    public synchronized int read(byte[] b, int off, int len) {
+                        if (pos > file.length / 2) {
+                            throw new IllegalStateException("Disk failed");
+                        }
+                        return super.read(b, off, len);
+                    }
+                };
+            }
+        };
+
+        WordCountPipeline pipeline = new WordCountPipeline(4096, 8, 3);
+        assertThatThrownBy(() -> pipeline.count(failing, () -> new SpillingWordCounter(16, spillDirectory)))
+                .hasStackTraceContaining("Disk failed");
+        assertNoTempFiles();
+    }
+
+    private void assertNoTempFiles() throws IOException {
+        try (var files = Files.list(spillDirectory)) {
+            assertThat(files).isEmpty();
+        }
+    }
+
+    private static void assertSameResult(SimilarityResult actual, SimilarityResult expected) {
+        assertThat(actual.getTotalCount()).isEqualTo(expected.getTotalCount());
+        assertThat(actual.getIntersectionCount()).isEqualTo(expected.getIntersectionCount());
+        assertThat(actual.getSimilarityScore()).isEqualTo(expected.getSimilarityScore());
+    }
+
+    private static Map<String, Integer> count(WordCountPipeline pipeline, byte[] text) throws IOException {
+        return new HashMap<>(pipeline.count(new ByteArrayResource(text)));
+    }
+
+    /**
+     * Random words from a vocabulary of the given size, word ids are spelled with letters only
+     * */
+    private static byte[] text(int words, int vocabulary, long seed) {
+        Random random = new Random(seed);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            int id = (int) Math.abs(random.nextGaussian() * vocabulary / 3) % vocabulary;
+            text.append('w');
+            for (char c : Integer.toString(id).toCharArray()) {
+                text.append((char) ('a' + c - '0'));
+            }
+            text.append(i % 17 == 0 ? '\n' : ' ');
+        }
+        return text.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}